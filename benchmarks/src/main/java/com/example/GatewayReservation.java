@@ -0,0 +1,28 @@
+package com.example;
+
+/**
+ * Same shape as the Reservation DTO in reservation-client, which can't share a classpath with
+ * the reservation-service entity of the same name.
+ */
+public class GatewayReservation {
+
+	private Long id;
+
+	private String reservationName;
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public String getReservationName() {
+		return reservationName;
+	}
+
+	public void setReservationName(String reservationName) {
+		this.reservationName = reservationName;
+	}
+}
@@ -0,0 +1,106 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.bookmark.Account;
+import com.example.bookmark.AccountIdCache;
+import com.example.bookmark.AccountRepository;
+import com.example.bookmark.Bookmark;
+import com.example.bookmark.BookmarkRepository;
+
+/**
+ * Rows inserted per second with hibernate jdbc batching off ({@code jdbcBatchSize=0}) and on, the
+ * way repo/reservation-service.properties configures it. ingestEnvelope is the stream path saving
+ * one envelope per transaction, addBookmark repeats what BookmarkRestController.add does per request.
+ * addBookmark is one insert per transaction, so batching can't help it; what it shows is the pooled-lo
+ * generator going to the sequence once every 50 inserts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertThroughputBenchmark {
+
+	private static final int ENVELOPE_SIZE = 100;
+
+	private static final String USERNAME = "benchmark";
+
+	@Param({ "0", "50" })
+	public int jdbcBatchSize;
+
+	private ConfigurableApplicationContext context;
+
+	private MessageReservationReceiver receiver;
+
+	private Message<byte[]> envelope;
+
+	private AccountIdCache accountIdCache;
+
+	private AccountRepository accountRepository;
+
+	private BookmarkRepository bookmarkRepository;
+
+	private TransactionTemplate transactionTemplate;
+
+	@Setup
+	public void setUp() {
+		this.context = ReservationServiceContext.start(
+				"spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+				"spring.jpa.properties.hibernate.order_inserts=true",
+				"reservation.ingest.batching=false");
+		this.receiver = this.context.getBean(MessageReservationReceiver.class);
+		this.accountIdCache = this.context.getBean(AccountIdCache.class);
+		this.accountRepository = this.context.getBean(AccountRepository.class);
+		this.bookmarkRepository = this.context.getBean(BookmarkRepository.class);
+		this.transactionTemplate = new TransactionTemplate(this.context.getBean(PlatformTransactionManager.class));
+		this.accountRepository.save(new Account(USERNAME, "password"));
+		List<ReservationEnvelope.Record> records = new ArrayList<>(ENVELOPE_SIZE);
+		for (int i = 0; i < ENVELOPE_SIZE; i++) {
+			records.add(new ReservationEnvelope.Record(null, "Reservation" + i, System.currentTimeMillis()));
+		}
+		this.envelope = MessageBuilder.withPayload(ReservationEnvelope.encode(records)).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENVELOPE_SIZE)
+	public void ingestEnvelope() {
+		this.receiver.receive(this.envelope);
+	}
+
+	@Benchmark
+	public Bookmark addBookmark() {
+		return this.transactionTemplate.execute(status -> {
+			Long accountId = this.accountIdCache.resolve(USERNAME).get();
+			return this.bookmarkRepository.save(new Bookmark(this.accountRepository.getOne(accountId),
+					"http://bookmark.com/" + USERNAME, "A description"));
+		});
+	}
+}
@@ -0,0 +1,143 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Bytes on the wire and codec cost for one publish batch, sent as text/plain messages (one per
+ * reservation, correlation id in an embedded header) or as a single {@link ReservationEnvelope}.
+ * The {@code wireBytes} secondary result is the size of the whole batch including the headers the
+ * redis binder embeds in front of the payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationEnvelopeBenchmark {
+
+	private static final String CORRELATION_ID_HEADER = "reservationCorrelationId";
+
+	@Param({ "1", "10", "100" })
+	public int batch;
+
+	private List<ReservationEnvelope.Record> records;
+
+	private List<byte[]> textMessages;
+
+	private byte[] envelope;
+
+	@Setup
+	public void setUp() {
+		this.records = new ArrayList<>(batch);
+		this.textMessages = new ArrayList<>(batch);
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < batch; i++) {
+			ReservationEnvelope.Record record = new ReservationEnvelope.Record(UUID.randomUUID().toString(), "Reservation" + i, now);
+			this.records.add(record);
+			this.textMessages.add(textMessage(record));
+		}
+		this.envelope = ReservationEnvelope.encode(this.records);
+	}
+
+	@Benchmark
+	public void encodeText(WireBytes wire, Blackhole blackhole) {
+		long bytes = 0;
+		for (ReservationEnvelope.Record record : this.records) {
+			byte[] message = textMessage(record);
+			bytes += message.length;
+			blackhole.consume(message);
+		}
+		wire.wireBytes = bytes;
+	}
+
+	@Benchmark
+	public byte[] encodeEnvelope(WireBytes wire) {
+		byte[] message = embedHeaders(ReservationEnvelope.encode(this.records),
+				"contentType", "application/octet-stream");
+		wire.wireBytes = message.length;
+		return message;
+	}
+
+	/**
+	 * what the receiver does per text/plain message: skip the embedded headers and decode the name
+	 */
+	@Benchmark
+	public void decodeText(Blackhole blackhole) {
+		for (byte[] message : this.textMessages) {
+			int offset = 2;
+			for (int header = 0; header < message[1]; header++) {
+				offset += 1 + message[offset];
+				offset += 4 + readInt(message, offset);
+			}
+			blackhole.consume(new String(message, offset, message.length - offset, StandardCharsets.UTF_8));
+		}
+	}
+
+	@Benchmark
+	public List<ReservationEnvelope.Record> decodeEnvelope() {
+		return ReservationEnvelope.decode(this.envelope);
+	}
+
+	private static byte[] textMessage(ReservationEnvelope.Record record) {
+		return embedHeaders(record.getReservationName().getBytes(StandardCharsets.UTF_8),
+				"contentType", "text/plain", CORRELATION_ID_HEADER, record.getCorrelationId());
+	}
+
+	/**
+	 * same framing as the binder's embedded headers: 0xff, header count, then per header a one byte
+	 * name length, the name, a four byte value length and the JSON encoded value
+	 */
+	private static byte[] embedHeaders(byte[] payload, String... headers) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 64);
+		out.write(0xff);
+		out.write(headers.length / 2);
+		for (int i = 0; i < headers.length; i += 2) {
+			byte[] name = headers[i].getBytes(StandardCharsets.UTF_8);
+			byte[] value = ('"' + headers[i + 1] + '"').getBytes(StandardCharsets.UTF_8);
+			out.write(name.length);
+			out.write(name, 0, name.length);
+			out.write(value.length >>> 24);
+			out.write(value.length >>> 16);
+			out.write(value.length >>> 8);
+			out.write(value.length);
+			out.write(value, 0, value.length);
+		}
+		out.write(payload, 0, payload.length);
+		return out.toByteArray();
+	}
+
+	private static int readInt(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xff) << 24 | (bytes[offset + 1] & 0xff) << 16
+				| (bytes[offset + 2] & 0xff) << 8 | (bytes[offset + 3] & 0xff);
+	}
+
+	/**
+	 * overwritten by every invocation, so the reported value is the size of one batch
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class WireBytes {
+
+		public long wireBytes;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Throughput of MessageReservationReceiver, per message saves against the batching writer, and
+ * for single reservation messages against {@link ReservationEnvelope} messages.
+ * The batching queue is kept small so the score reflects sustained database throughput rather
+ * than how fast the queue fills up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReservationIngestBenchmark {
+
+	private static final int ENVELOPE_SIZE = 100;
+
+	@Param({ "false", "true" })
+	public boolean batching;
+
+	private ConfigurableApplicationContext context;
+
+	private MessageReservationReceiver receiver;
+
+	private long sequence;
+
+	private Message<byte[]> envelope;
+
+	@Setup
+	public void setUp() {
+		this.context = ReservationServiceContext.start(
+				"reservation.ingest.batching=" + batching,
+				"reservation.ingest.queue-capacity=500");
+		this.receiver = this.context.getBean(MessageReservationReceiver.class);
+		List<ReservationEnvelope.Record> records = new ArrayList<>(ENVELOPE_SIZE);
+		for (int i = 0; i < ENVELOPE_SIZE; i++) {
+			records.add(new ReservationEnvelope.Record(null, "Reservation" + i, System.currentTimeMillis()));
+		}
+		this.envelope = MessageBuilder.withPayload(ReservationEnvelope.encode(records)).build();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public void acceptReservation() {
+		this.receiver.acceptReservation("Reservation" + sequence++, null);
+	}
+
+	/**
+	 * scored per reservation, not per message
+	 */
+	@Benchmark
+	@OperationsPerInvocation(ENVELOPE_SIZE)
+	public void receiveEnvelope() {
+		this.receiver.receive(this.envelope);
+	}
+}
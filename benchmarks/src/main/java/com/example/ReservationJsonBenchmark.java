@@ -0,0 +1,112 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decoding of the HAL reservations collection as the gateway's
+ * {@code ParameterizedTypeReference<Resources<Reservation>>} exchange does it, and encoding of
+ * the plain list served by /get_all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationJsonBenchmark {
+
+	@Param({ "10", "1000", "10000" })
+	public int size;
+
+	private final ObjectMapper halMapper = new ObjectMapper();
+
+	private final ObjectMapper plainMapper = new ObjectMapper();
+
+	private JavaType resourcesType;
+
+	private byte[] halPayload;
+
+	private List<Reservation> entities;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.halMapper.registerModule(new Jackson2HalModule());
+		this.halMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		this.resourcesType = this.halMapper.getTypeFactory()
+				.constructType(new ParameterizedTypeReference<Resources<GatewayReservation>>() {}.getType());
+		this.halPayload = halPayload(size);
+		this.entities = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Reservation reservation = new Reservation("Reservation" + i);
+			reservation.setId((long) i);
+			this.entities.add(reservation);
+		}
+	}
+
+	@Benchmark
+	public Resources<GatewayReservation> decodeHalResources() throws IOException {
+		return this.halMapper.readValue(this.halPayload, this.resourcesType);
+	}
+
+	/**
+	 * decode plus the projection getReservationNames did before it streamed the names, see
+	 * ReservationNamesDecodingBenchmark in reservation-client for the streaming decoder
+	 */
+	@Benchmark
+	public Collection<String> decodeReservationNames() throws IOException {
+		Resources<GatewayReservation> resources = this.halMapper.readValue(this.halPayload, this.resourcesType);
+		return resources.getContent().stream().map(GatewayReservation::getReservationName).collect(Collectors.toList());
+	}
+
+	@Benchmark
+	public byte[] encodeReservationList() throws IOException {
+		return this.plainMapper.writeValueAsBytes(this.entities);
+	}
+
+	/**
+	 * @return what spring data rest renders for GET /reservations
+	 */
+	static byte[] halPayload(int size) {
+		StringBuilder json = new StringBuilder("{\"_embedded\":{\"reservations\":[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i)
+					.append(",\"reservationName\":\"Reservation").append(i).append('"')
+					.append(",\"_links\":{\"self\":{\"href\":\"http://localhost:8080/reservations/").append(i).append("\"}")
+					.append(",\"reservation\":{\"href\":\"http://localhost:8080/reservations/").append(i).append("\"}}}");
+		}
+		json.append("]},\"_links\":{\"self\":{\"href\":\"http://localhost:8080/reservations\"}")
+				.append(",\"profile\":{\"href\":\"http://localhost:8080/profile/reservations\"}")
+				.append(",\"search\":{\"href\":\"http://localhost:8080/reservations/search\"}}")
+				.append(",\"page\":{\"size\":").append(size).append(",\"totalElements\":").append(size)
+				.append(",\"totalPages\":1,\"number\":0}}");
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,87 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * ReservationRepository queries against embedded H2 with a table of {@code rows} reservations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReservationRepositoryBenchmark {
+
+	@Param({ "10000" })
+	public int rows;
+
+	private ConfigurableApplicationContext context;
+
+	private ReservationRepository repo;
+
+	@Setup
+	public void setUp() {
+		this.context = ReservationServiceContext.start();
+		this.repo = this.context.getBean(ReservationRepository.class);
+		List<Reservation> chunk = new ArrayList<>();
+		for (int i = 0; i < rows; i++) {
+			chunk.add(new Reservation("Reservation" + i));
+			if (chunk.size() == 1000) {
+				this.repo.save(chunk);
+				chunk.clear();
+			}
+		}
+		this.repo.save(chunk);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public Collection<Reservation> findByName() {
+		return this.repo.findByReservationNameIgnoreCase("RESERVATION" + ThreadLocalRandom.current().nextInt(rows));
+	}
+
+	@Benchmark
+	public List<Reservation> findByPrefix() {
+		return this.repo.findByReservationNamePrefix("reservation" + ThreadLocalRandom.current().nextInt(rows / 10), new PageRequest(0, 10));
+	}
+
+	@Benchmark
+	public List<Reservation> keysetPage() {
+		return this.repo.findByIdGreaterThanOrderByIdAsc((long) ThreadLocalRandom.current().nextInt(rows), new PageRequest(0, 100));
+	}
+
+	@Benchmark
+	public Reservation findOne() {
+		return this.repo.findOne((long) ThreadLocalRandom.current().nextInt(rows) + 1);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public List<Reservation> findAll() {
+		return this.repo.findAll();
+	}
+}
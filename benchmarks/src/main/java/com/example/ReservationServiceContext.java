@@ -0,0 +1,47 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts reservation-service without config server, eureka, zipkin or a web server, on its own
+ * in-memory H2. The stream binder is replaced by the test support binder on the classpath.
+ */
+final class ReservationServiceContext {
+
+	private static final String[] DEFAULTS = {
+			"spring.cloud.config.enabled=false",
+			"eureka.client.enabled=false",
+			"spring.zipkin.enabled=false",
+			"spring.jpa.show-sql=false",
+			"logging.level.root=WARN",
+			"message=benchmark",
+			"reservation.seed.enabled=false" };
+
+	private ReservationServiceContext() {
+	}
+
+	/**
+	 * @param properties additional key=value pairs
+	 * @return running context, close it in the trial tear down
+	 */
+	static ConfigurableApplicationContext start(String... properties) {
+		List<String> args = new ArrayList<>();
+		args.add("--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+		for (String property : DEFAULTS) {
+			args.add("--" + property);
+		}
+		for (String property : Arrays.asList(properties)) {
+			args.add("--" + property);
+		}
+		return new SpringApplicationBuilder(ReservationServiceApplication.class)
+				.web(false)
+				.logStartupInfo(false)
+				.run(args.toArray(new String[args.size()]));
+	}
+}
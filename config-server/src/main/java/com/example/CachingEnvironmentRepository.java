@@ -0,0 +1,232 @@
+package com.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Resolved {application}/{profile}/{label} environments, kept until the revision the label points to
+ * in the backend changes. Checking the revision is one cheap remote call per label at most every
+ * configserver.cache.revision-check-ms, however many clients bootstrap or refresh meanwhile; the
+ * full fetch, checkout and parse only runs on a new revision, once per environment however many
+ * clients ask for it meanwhile. If the revision can't be checked the last resolved environment is
+ * served. The cache survives restarts in a {@link MappedEnvironmentStore}.
+ *
+ * Counters: configserver.cache.hit, .miss, .stale, .revision-check, .revision-check.failed
+ */
+class CachingEnvironmentRepository implements EnvironmentRepository, SearchPathLocator {
+
+	private static final Logger log = LoggerFactory.getLogger(CachingEnvironmentRepository.class);
+
+	/**
+	 * where the current revision of a label comes from, see {@link GitRemoteRevisions}
+	 */
+	interface RevisionLookup {
+
+		/**
+		 * @return commit the label points to now, null if environments of this label can't be cached
+		 */
+		String revision(String label) throws Exception;
+	}
+
+	private final EnvironmentRepository delegate;
+
+	private final SearchPathLocator searchPathLocator;
+
+	private final RevisionLookup revisionLookup;
+
+	private final MappedEnvironmentStore store;
+
+	private final CounterService counterService;
+
+	private final long revisionCheckMs;
+
+	private final String defaultLabel;
+
+	private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<String, CheckedRevision> revisions = new ConcurrentHashMap<>();
+
+	/**
+	 * lock per environment key, held while it is resolved
+	 */
+	private final ConcurrentMap<String, Object> resolving = new ConcurrentHashMap<>();
+
+	private volatile ChangeListener changeListener;
+
+	CachingEnvironmentRepository(EnvironmentRepository delegate, SearchPathLocator searchPathLocator, RevisionLookup revisionLookup,
+			MappedEnvironmentStore store, CounterService counterService, long revisionCheckMs, String defaultLabel) {
+		this.delegate = delegate;
+		this.searchPathLocator = searchPathLocator;
+		this.revisionLookup = revisionLookup;
+		this.store = store;
+		this.counterService = counterService;
+		this.revisionCheckMs = revisionCheckMs;
+		this.defaultLabel = defaultLabel;
+		this.entries.putAll(store.load());
+	}
+
+	@Override
+	public Environment findOne(String application, String profile, String label) {
+		String effectiveLabel = label == null ? defaultLabel : label;
+		String key = application + "/" + profile + "/" + effectiveLabel;
+		Entry cached = entries.get(key);
+		String revision;
+		try {
+			revision = revision(effectiveLabel);
+		} catch (Exception ex) {
+			if (cached != null) {
+				log.warn("Serving cached {} at {}, revision check failed: {}", key, cached.revision, ex.toString());
+				counterService.increment("configserver.cache.stale");
+				return cached.environment;
+			}
+			return delegate.findOne(application, profile, label);
+		}
+		if (cached != null && cached.revision.equals(revision)) {
+			counterService.increment("configserver.cache.hit");
+			return cached.environment;
+		}
+		if (revision == null) {
+			counterService.increment("configserver.cache.miss");
+			return delegate.findOne(application, profile, label);
+		}
+		synchronized (resolving.computeIfAbsent(key, k -> new Object())) {
+			// resolved by the request this one waited for
+			cached = entries.get(key);
+			if (cached != null && cached.revision.equals(revision)) {
+				counterService.increment("configserver.cache.hit");
+				return cached.environment;
+			}
+			counterService.increment("configserver.cache.miss");
+			Environment environment = delegate.findOne(application, profile, label);
+			// keyed by the revision that was checked; a commit landing meanwhile only costs one more resolve
+			Entry after = new Entry(revision, environment);
+			Entry before = entries.put(key, after);
+			store.save(new LinkedHashMap<>(entries));
+			if (before != null) {
+				changed(key, before, after);
+			}
+			return environment;
+		}
+	}
+
+	/**
+	 * Re-resolves every cached environment whose label moved to a new revision since it was cached,
+	 * environments nobody asked for yet aren't tracked. The {@link ChangeListener} hears about these
+	 * just like about environments a request found outdated.
+	 */
+	void refreshChanged() {
+		boolean saved = false;
+		for (Map.Entry<String, Entry> cached : entries.entrySet()) {
+			String[] key = cached.getKey().split("/", 3);
+			String revision;
+			try {
+				revision = revision(key[2]);
+			} catch (Exception ex) {
+				log.debug("Skipping {}, revision check failed: {}", cached.getKey(), ex.toString());
+				continue;
+			}
+			synchronized (resolving.computeIfAbsent(cached.getKey(), k -> new Object())) {
+				Entry before = entries.get(cached.getKey());
+				if (revision == null || revision.equals(before.revision)) {
+					continue;
+				}
+				Entry after = new Entry(revision, delegate.findOne(key[0], key[1], key[2]));
+				entries.put(cached.getKey(), after);
+				saved = true;
+				changed(cached.getKey(), before, after);
+			}
+		}
+		if (saved) {
+			store.save(new LinkedHashMap<>(entries));
+		}
+	}
+
+	void setChangeListener(ChangeListener changeListener) {
+		this.changeListener = changeListener;
+	}
+
+	private void changed(String key, Entry before, Entry after) {
+		ChangeListener listener = this.changeListener;
+		if (listener != null && !before.revision.equals(after.revision)) {
+			String[] parts = key.split("/", 3);
+			listener.changed(parts[0], parts[1], parts[2], before, after);
+		}
+	}
+
+	/**
+	 * concurrent requests for one label share a single check per interval
+	 */
+	String revision(String label) throws Exception {
+		CheckedRevision checked = revisions.computeIfAbsent(label, key -> new CheckedRevision());
+		synchronized (checked) {
+			long now = System.currentTimeMillis();
+			if (checked.checkedAt == 0 || now - checked.checkedAt >= revisionCheckMs) {
+				counterService.increment("configserver.cache.revision-check");
+				try {
+					checked.revision = revisionLookup.revision(label);
+				} catch (Exception ex) {
+					counterService.increment("configserver.cache.revision-check.failed");
+					throw ex;
+				}
+				checked.checkedAt = now;
+			}
+			return checked.revision;
+		}
+	}
+
+	@Override
+	public Locations getLocations(String application, String profile, String label) {
+		return searchPathLocator.getLocations(application, profile, label);
+	}
+
+	/**
+	 * told about every cached environment replaced by one of a newer revision
+	 */
+	interface ChangeListener {
+
+		void changed(String application, String profile, String label, Entry before, Entry after);
+	}
+
+	private static class CheckedRevision {
+
+		private long checkedAt;
+
+		private String revision;
+	}
+
+	/**
+	 * cached environment with the commit it was resolved from
+	 */
+	static class Entry {
+
+		private final String revision;
+
+		private final Environment environment;
+
+		@JsonCreator
+		Entry(@JsonProperty("revision") String revision, @JsonProperty("environment") Environment environment) {
+			this.revision = revision;
+			this.environment = environment;
+		}
+
+		public String getRevision() {
+			return revision;
+		}
+
+		public Environment getEnvironment() {
+			return environment;
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Properties of one {application}/{profile}/{label} that changed between two repository revisions,
+ * as JSON on the config-deltas destination. The JSON fields must stay in sync with the copy in
+ * reservation-service, which applies them. Environments are cached before decryption, so changed
+ * {cipher} values are only listed in {@link #getEncrypted()}, never sent; like removed keys they need
+ * a full refresh on the client.
+ */
+final class ConfigDelta {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private static final String ENCRYPTED_PREFIX = "{cipher}";
+
+	private String application;
+
+	private String profile;
+
+	private String label;
+
+	private String fromRevision;
+
+	private String toRevision;
+
+	private long publishedAt;
+
+	private Map<String, String> changed = new LinkedHashMap<>();
+
+	private List<String> removed = new ArrayList<>();
+
+	private List<String> encrypted = new ArrayList<>();
+
+	/**
+	 * @return delta between the resolved environments, empty if no effective value changed
+	 */
+	static ConfigDelta between(String application, String profile, String label, String fromRevision, Environment before,
+			String toRevision, Environment after) {
+		ConfigDelta delta = new ConfigDelta();
+		delta.application = application;
+		delta.profile = profile;
+		delta.label = label;
+		delta.fromRevision = fromRevision;
+		delta.toRevision = toRevision;
+		Map<String, String> old = flatten(before);
+		for (Map.Entry<String, String> property : flatten(after).entrySet()) {
+			if (property.getValue().equals(old.remove(property.getKey()))) {
+				continue;
+			}
+			if (property.getValue().startsWith(ENCRYPTED_PREFIX)) {
+				delta.encrypted.add(property.getKey());
+			} else {
+				delta.changed.put(property.getKey(), property.getValue());
+			}
+		}
+		delta.removed.addAll(old.keySet());
+		return delta;
+	}
+
+	/**
+	 * @return effective values, the first property source of the environment wins
+	 */
+	private static Map<String, String> flatten(Environment environment) {
+		Map<String, String> properties = new LinkedHashMap<>();
+		List<PropertySource> sources = new ArrayList<>(environment.getPropertySources());
+		Collections.reverse(sources);
+		for (PropertySource source : sources) {
+			for (Map.Entry<?, ?> property : source.getSource().entrySet()) {
+				properties.put(String.valueOf(property.getKey()), String.valueOf(property.getValue()));
+			}
+		}
+		return properties;
+	}
+
+	boolean isEmpty() {
+		return changed.isEmpty() && removed.isEmpty() && encrypted.isEmpty();
+	}
+
+	String toJson() {
+		try {
+			return JSON.writeValueAsString(this);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @param payload JSON as String or UTF-8 bytes
+	 */
+	static ConfigDelta fromJson(Object payload) throws IOException {
+		String json = payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) : payload.toString();
+		return JSON.readValue(json, ConfigDelta.class);
+	}
+
+	public String getApplication() {
+		return application;
+	}
+
+	public void setApplication(String application) {
+		this.application = application;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public void setProfile(String profile) {
+		this.profile = profile;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	public String getFromRevision() {
+		return fromRevision;
+	}
+
+	public void setFromRevision(String fromRevision) {
+		this.fromRevision = fromRevision;
+	}
+
+	public String getToRevision() {
+		return toRevision;
+	}
+
+	public void setToRevision(String toRevision) {
+		this.toRevision = toRevision;
+	}
+
+	public long getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(long publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public Map<String, String> getChanged() {
+		return changed;
+	}
+
+	public void setChanged(Map<String, String> changed) {
+		this.changed = changed;
+	}
+
+	public List<String> getRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(List<String> removed) {
+		this.removed = removed;
+	}
+
+	// left out when empty, clients that predate the field still read every delta they can apply
+	@JsonInclude(JsonInclude.Include.NON_EMPTY)
+	public List<String> getEncrypted() {
+		return encrypted;
+	}
+
+	public void setEncrypted(List<String> encrypted) {
+		this.encrypted = encrypted;
+	}
+}
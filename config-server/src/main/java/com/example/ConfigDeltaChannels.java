@@ -0,0 +1,16 @@
+package com.example;
+
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Binding of {@link ConfigDeltaPublisher}, clients subscribe to the same destination without a
+ * consumer group so every instance gets every delta.
+ */
+public interface ConfigDeltaChannels {
+
+	String OUTPUT = "configDeltaOutput";
+
+	@Output(OUTPUT)
+	MessageChannel deltaOutput();
+}
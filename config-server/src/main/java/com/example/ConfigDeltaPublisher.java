@@ -0,0 +1,84 @@
+package com.example;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Pushes a {@link ConfigDelta} whenever a cached environment moves to a new revision, so clients pick
+ * up changed keys without calling /refresh and downloading the whole environment. The repository is
+ * polled every configserver.push.poll-ms; environments are also diffed when a request is the first to
+ * see a new revision.
+ *
+ * Counters: configserver.push.published, .unchanged
+ */
+class ConfigDeltaPublisher implements CachingEnvironmentRepository.ChangeListener, InitializingBean, DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(ConfigDeltaPublisher.class);
+
+	private final CachingEnvironmentRepository repository;
+
+	private final MessageChannel output;
+
+	private final CounterService counterService;
+
+	private final long pollMs;
+
+	private final ScheduledExecutorService poller;
+
+	ConfigDeltaPublisher(CachingEnvironmentRepository repository, MessageChannel output, CounterService counterService, long pollMs) {
+		this.repository = repository;
+		this.output = output;
+		this.counterService = counterService;
+		this.pollMs = pollMs;
+		this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "config-delta-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		this.repository.setChangeListener(this);
+		this.poller.scheduleWithFixedDelay(this::poll, this.pollMs, this.pollMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void poll() {
+		try {
+			this.repository.refreshChanged();
+		} catch (RuntimeException ex) {
+			log.warn("Polling the config repository failed", ex);
+		}
+	}
+
+	@Override
+	public void changed(String application, String profile, String label, CachingEnvironmentRepository.Entry before,
+			CachingEnvironmentRepository.Entry after) {
+		ConfigDelta delta = ConfigDelta.between(application, profile, label, before.getRevision(), before.getEnvironment(),
+				after.getRevision(), after.getEnvironment());
+		if (delta.isEmpty()) {
+			this.counterService.increment("configserver.push.unchanged");
+			return;
+		}
+		delta.setPublishedAt(System.currentTimeMillis());
+		this.output.send(MessageBuilder.withPayload(delta.toJson()).build());
+		this.counterService.increment("configserver.push.published");
+		log.info("Pushed {} changed and {} removed keys of {}/{}/{} at {}", delta.getChanged().size(),
+				delta.getRemoved().size(), application, profile, label, after.getRevision());
+	}
+
+	@Override
+	public void destroy() {
+		this.repository.setChangeListener(null);
+		this.poller.shutdownNow();
+	}
+}
@@ -1,10 +1,25 @@
 package com.example;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.cloud.config.server.EnableConfigServer;
+import org.springframework.cloud.config.server.environment.MultipleJGitEnvironmentRepository;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Enables config server.
@@ -12,6 +27,7 @@ import org.springframework.web.bind.annotation.RestController;
  * added rest contorller to check the server's availablitiy
  */
 @EnableConfigServer
+@EnableBinding(ConfigDeltaChannels.class)//pushes config deltas over the redis binder
 @SpringBootApplication
 @RestController
 public class ConfigServerApplication {
@@ -27,3 +43,52 @@ public class ConfigServerApplication {
 		SpringApplication.run(ConfigServerApplication.class, args);
 	}
 }
+
+/**
+ * puts {@link CachingEnvironmentRepository} in front of the git backend, and answers repeated
+ * environment requests whose body didn't change with 304
+ */
+@Configuration
+class EnvironmentCacheConfiguration {
+
+	/**
+	 * the git backend config server would otherwise create itself, declared here so it can be wrapped
+	 */
+	@Bean
+	@ConfigurationProperties("spring.cloud.config.server.git")
+	MultipleJGitEnvironmentRepository gitEnvironmentRepository(ConfigurableEnvironment environment) {
+		return new MultipleJGitEnvironmentRepository(environment);
+	}
+
+	@Bean
+	MappedEnvironmentStore mappedEnvironmentStore(ObjectMapper objectMapper,
+			@Value("${configserver.cache.file:${user.home}/.config-server/environments.cache}") File file,
+			@Value("${configserver.cache.file-size-bytes:16777216}") int fileSizeBytes) throws IOException {
+		return new MappedEnvironmentStore(file, fileSizeBytes, objectMapper);
+	}
+
+	@Bean
+	@Primary
+	CachingEnvironmentRepository cachingEnvironmentRepository(MultipleJGitEnvironmentRepository gitEnvironmentRepository,
+			MappedEnvironmentStore mappedEnvironmentStore, CounterService counterService,
+			@Value("${configserver.cache.revision-check-ms:5000}") long revisionCheckMs,
+			@Value("${spring.cloud.config.server.git.defaultLabel:master}") String defaultLabel) {
+		return new CachingEnvironmentRepository(gitEnvironmentRepository, gitEnvironmentRepository,
+				new GitRemoteRevisions(gitEnvironmentRepository), mappedEnvironmentStore, counterService, revisionCheckMs, defaultLabel);
+	}
+
+	@Bean
+	ConfigDeltaPublisher configDeltaPublisher(CachingEnvironmentRepository cachingEnvironmentRepository,
+			ConfigDeltaChannels channels, CounterService counterService,
+			@Value("${configserver.push.poll-ms:5000}") long pollMs) {
+		return new ConfigDeltaPublisher(cachingEnvironmentRepository, channels.deltaOutput(), counterService, pollMs);
+	}
+
+	/**
+	 * ETag from the rendered body, a client sending it back in If-None-Match gets an empty 304
+	 */
+	@Bean
+	ShallowEtagHeaderFilter shallowEtagHeaderFilter() {
+		return new ShallowEtagHeaderFilter();
+	}
+}
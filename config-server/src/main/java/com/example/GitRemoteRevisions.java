@@ -0,0 +1,51 @@
+package com.example;
+
+import java.util.regex.Pattern;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LsRemoteCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.springframework.cloud.config.server.environment.MultipleJGitEnvironmentRepository;
+import org.springframework.util.StringUtils;
+
+/**
+ * Asks the git backend which commit a branch or tag points to with ls-remote, without fetching.
+ * Only the default repository is checked: with pattern matched repos or an {application} placeholder
+ * in the uri the repository depends on the request, and nothing is cached.
+ */
+class GitRemoteRevisions implements CachingEnvironmentRepository.RevisionLookup {
+
+	private static final Pattern COMMIT_ID = Pattern.compile("[0-9a-f]{40}");
+
+	private final MultipleJGitEnvironmentRepository repository;
+
+	GitRemoteRevisions(MultipleJGitEnvironmentRepository repository) {
+		this.repository = repository;
+	}
+
+	@Override
+	public String revision(String label) throws Exception {
+		String uri = repository.getUri();
+		if (uri == null || uri.contains("{") || !repository.getRepos().isEmpty()) {
+			return null;
+		}
+		if (COMMIT_ID.matcher(label).matches()) {
+			// a commit never moves
+			return label;
+		}
+		LsRemoteCommand lsRemote = Git.lsRemoteRepository().setRemote(uri).setHeads(true).setTags(true)
+				.setTimeout(repository.getTimeout());
+		if (StringUtils.hasText(repository.getUsername())) {
+			lsRemote.setCredentialsProvider(new UsernamePasswordCredentialsProvider(repository.getUsername(), repository.getPassword()));
+		}
+		for (Ref ref : lsRemote.call()) {
+			if (ref.getName().equals("refs/heads/" + label) || ref.getName().equals("refs/tags/" + label)) {
+				ObjectId id = ref.getPeeledObjectId() != null ? ref.getPeeledObjectId() : ref.getObjectId();
+				return id.name();
+			}
+		}
+		return null;
+	}
+}
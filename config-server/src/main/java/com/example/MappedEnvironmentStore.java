@@ -0,0 +1,137 @@
+package com.example;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Keeps the resolved environments of {@link CachingEnvironmentRepository} in a memory-mapped file so a
+ * restarted config server answers its first requests without the backend. The whole cache is
+ * rewritten on every change; layout is magic, format version, payload length, then the cache as JSON.
+ * The length is written last, a torn write reads back as an empty cache. The cache holds every served
+ * property, secrets included, so on POSIX file systems the file is readable by its owner only and
+ * directories created for it are private.
+ */
+class MappedEnvironmentStore implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(MappedEnvironmentStore.class);
+
+	private static final int MAGIC = 0x43464743; // CFGC
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final int HEADER_BYTES = 12;
+
+	private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+
+	private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+	private static final TypeReference<Map<String, CachingEnvironmentRepository.Entry>> ENTRIES = new TypeReference<Map<String, CachingEnvironmentRepository.Entry>>() {};
+
+	private final File file;
+
+	private final ObjectMapper objectMapper;
+
+	private final RandomAccessFile raf;
+
+	private final MappedByteBuffer buffer;
+
+	/**
+	 * @param capacity bytes mapped, caches that don't fit are only kept in memory
+	 */
+	MappedEnvironmentStore(File file, int capacity, ObjectMapper objectMapper) throws IOException {
+		this.file = file;
+		this.objectMapper = objectMapper;
+		createPrivately(file.getAbsoluteFile().toPath());
+		this.raf = new RandomAccessFile(file, "rw");
+		this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+
+	private static void createPrivately(Path path) throws IOException {
+		boolean posix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+		Path parent = path.getParent();
+		if (parent != null && !Files.isDirectory(parent)) {
+			Files.createDirectories(parent, posix ? attributes(OWNER_DIRECTORY) : attributes());
+		}
+		if (!Files.exists(path)) {
+			Files.createFile(path, posix ? attributes(OWNER_FILE) : attributes());
+		} else if (posix) {
+			// written by a release that left it world readable
+			Files.setPosixFilePermissions(path, OWNER_FILE);
+		}
+	}
+
+	private static FileAttribute<?>[] attributes(Set<PosixFilePermission> permissions) {
+		return new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(permissions) };
+	}
+
+	private static FileAttribute<?>[] attributes() {
+		return new FileAttribute<?>[0];
+	}
+
+	/**
+	 * @return cache as last saved, empty if there is none or it can't be read
+	 */
+	synchronized Map<String, CachingEnvironmentRepository.Entry> load() {
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			return Collections.emptyMap();
+		}
+		int length = buffer.getInt(8);
+		if (length <= 0 || length > buffer.capacity() - HEADER_BYTES) {
+			return Collections.emptyMap();
+		}
+		byte[] payload = new byte[length];
+		buffer.position(HEADER_BYTES);
+		buffer.get(payload);
+		try {
+			return objectMapper.readValue(payload, ENTRIES);
+		} catch (IOException ex) {
+			log.warn("Ignoring unreadable environment cache {}", file, ex);
+			return Collections.emptyMap();
+		}
+	}
+
+	synchronized void save(Map<String, CachingEnvironmentRepository.Entry> entries) {
+		byte[] payload;
+		try {
+			payload = objectMapper.writeValueAsBytes(entries);
+		} catch (IOException ex) {
+			log.warn("Could not serialize environment cache", ex);
+			return;
+		}
+		if (payload.length > buffer.capacity() - HEADER_BYTES) {
+			log.warn("Environment cache of {} bytes exceeds {}, raise configserver.cache.file-size-bytes", payload.length, file);
+			return;
+		}
+		buffer.putInt(8, 0);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, FORMAT_VERSION);
+		buffer.position(HEADER_BYTES);
+		buffer.put(payload);
+		buffer.putInt(8, payload.length);
+		buffer.force();
+	}
+
+	@Override
+	public void destroy() throws IOException {
+		raf.close();
+	}
+}
@@ -0,0 +1,168 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.cloud.config.environment.Environment;
+import org.springframework.cloud.config.environment.PropertySource;
+import org.springframework.cloud.config.server.environment.EnvironmentRepository;
+import org.springframework.cloud.config.server.environment.SearchPathLocator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class CachingEnvironmentRepositoryTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private EnvironmentRepository backend;
+
+	private File file;
+
+	private MappedEnvironmentStore store;
+
+	private String revision = "a";
+
+	private boolean backendReachable = true;
+
+	@Before
+	public void setUp() throws IOException {
+		backend = mock(EnvironmentRepository.class);
+		when(backend.findOne("reservation-service", "default", null)).thenAnswer(invocation -> environment(revision));
+		file = new File(folder.getRoot(), "environments.cache");
+		store = new MappedEnvironmentStore(file, 1 << 16, new ObjectMapper());
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		store.destroy();
+	}
+
+	@Test
+	public void sameRevisionIsServedFromCache() {
+		CachingEnvironmentRepository repository = repository(store);
+
+		repository.findOne("reservation-service", "default", null);
+		Environment cached = repository.findOne("reservation-service", "default", null);
+
+		assertEquals("a", cached.getPropertySources().get(0).getSource().get("message"));
+		verify(backend, times(1)).findOne("reservation-service", "default", null);
+	}
+
+	@Test
+	public void newRevisionIsResolvedAgain() {
+		CachingEnvironmentRepository repository = repository(store);
+
+		repository.findOne("reservation-service", "default", null);
+		revision = "b";
+		Environment refreshed = repository.findOne("reservation-service", "default", null);
+
+		assertEquals("b", refreshed.getPropertySources().get(0).getSource().get("message"));
+		verify(backend, times(2)).findOne("reservation-service", "default", null);
+	}
+
+	@Test
+	public void concurrentMissesResolveOnce() throws Exception {
+		CountDownLatch resolving = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		when(backend.findOne("reservation-service", "default", null)).thenAnswer(invocation -> {
+			resolving.countDown();
+			release.await();
+			return environment(revision);
+		});
+		CachingEnvironmentRepository repository = repository(store);
+		ExecutorService clients = Executors.newFixedThreadPool(8);
+		try {
+			Future<?> first = clients.submit(() -> repository.findOne("reservation-service", "default", null));
+			assertTrue(resolving.await(5, TimeUnit.SECONDS));
+			Future<?>[] others = new Future<?>[7];
+			for (int i = 0; i < others.length; i++) {
+				others[i] = clients.submit(() -> repository.findOne("reservation-service", "default", null));
+			}
+			release.countDown();
+			first.get(5, TimeUnit.SECONDS);
+			for (Future<?> other : others) {
+				other.get(5, TimeUnit.SECONDS);
+			}
+		} finally {
+			clients.shutdownNow();
+		}
+
+		verify(backend, times(1)).findOne("reservation-service", "default", null);
+	}
+
+	@Test
+	public void cacheFileIsOwnerOnly() throws IOException {
+		assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+		File privateFile = new File(folder.getRoot(), "private/environments.cache");
+		new MappedEnvironmentStore(privateFile, 1 << 10, new ObjectMapper()).destroy();
+
+		assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(privateFile.getParentFile().toPath())));
+		assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(privateFile.toPath())));
+	}
+
+	@Test
+	public void restartedServerAnswersFromTheFile() throws IOException {
+		repository(store).findOne("reservation-service", "default", null);
+		store.destroy();
+		store = new MappedEnvironmentStore(file, 1 << 16, new ObjectMapper());
+
+		Environment restored = repository(store).findOne("reservation-service", "default", null);
+
+		assertEquals("a", restored.getPropertySources().get(0).getSource().get("message"));
+		verify(backend, times(1)).findOne("reservation-service", "default", null);
+	}
+
+	@Test
+	public void unreachableBackendServesLastResolved() {
+		CachingEnvironmentRepository repository = repository(store);
+		repository.findOne("reservation-service", "default", null);
+
+		backendReachable = false;
+		revision = "b";
+		Environment stale = repository.findOne("reservation-service", "default", null);
+
+		assertEquals("a", stale.getPropertySources().get(0).getSource().get("message"));
+	}
+
+	private CachingEnvironmentRepository repository(MappedEnvironmentStore store) {
+		CachingEnvironmentRepository.RevisionLookup revisions = label -> {
+			if (!backendReachable) {
+				throw new IOException("backend down");
+			}
+			return revision;
+		};
+		// every request checks the revision
+		return new CachingEnvironmentRepository(backend, mock(SearchPathLocator.class), revisions, store,
+				mock(CounterService.class), 0, "master");
+	}
+
+	private static Environment environment(String revision) {
+		Environment environment = new Environment("reservation-service", "default");
+		environment.add(new PropertySource("repo/reservation-service.properties", Collections.singletonMap("message", revision)));
+		return environment;
+	}
+}
@@ -0,0 +1,108 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.test.binder.MessageCollector;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+
+/**
+ * Config server on a local git repository with the test binder collecting what it publishes. A commit
+ * must come out as a delta of just the changed keys within the poll interval; applying deltas is
+ * covered by ConfigDeltaListenerTests in reservation-service.
+ */
+public class ConfigDeltaPushTests {
+
+	private static final Logger log = LoggerFactory.getLogger(ConfigDeltaPushTests.class);
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Git git;
+
+	private ConfigurableApplicationContext server;
+
+	private BlockingQueue<Message<?>> published;
+
+	@Before
+	public void startServer() throws Exception {
+		File repo = folder.newFolder("repo");
+		this.git = Git.init().setDirectory(repo).call();
+		commit("message=one\nother=unchanged\n");
+		this.server = new SpringApplicationBuilder(ConfigServerApplication.class)
+				.web(false)
+				.run("--spring.cloud.config.server.git.uri=" + repo.toURI(),
+						"--spring.cloud.config.server.git.basedir=" + folder.newFolder("checkout"),
+						"--configserver.cache.file=" + new File(folder.getRoot(), "environments.cache"),
+						"--configserver.cache.revision-check-ms=0",
+						"--configserver.push.poll-ms=50");
+		// a client bootstraps, which puts the environment in the cache the poller diffs against
+		this.server.getBean(CachingEnvironmentRepository.class).findOne("reservation-service", "default", null);
+		this.published = this.server.getBean(MessageCollector.class)
+				.forChannel(this.server.getBean(ConfigDeltaChannels.class).deltaOutput());
+	}
+
+	@After
+	public void stopServer() {
+		this.server.close();
+		this.git.close();
+	}
+
+	@Test
+	public void commitIsPushedAsDeltaOfChangedKeys() throws Exception {
+		commit("message=two\nother=unchanged\n");
+		long committedAt = System.nanoTime();
+
+		ConfigDelta delta = nextDelta();
+		long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - committedAt);
+		log.info("commit to published delta: {}ms", latencyMs);
+
+		assertEquals("reservation-service", delta.getApplication());
+		assertEquals(Collections.singletonMap("message", "two"), delta.getChanged());
+		assertTrue(delta.getRemoved().isEmpty());
+		assertTrue(delta.getEncrypted().isEmpty());
+		assertTrue("published after " + latencyMs + "ms", latencyMs < 5000);
+	}
+
+	@Test
+	public void encryptedValueIsNamedButNotSent() throws Exception {
+		commit("message={cipher}0123456789abcdef\nother=unchanged\n");
+
+		ConfigDelta delta = nextDelta();
+
+		assertEquals(Collections.singletonList("message"), delta.getEncrypted());
+		assertTrue(delta.getChanged().isEmpty());
+		assertTrue(delta.toJson(), !delta.toJson().contains("{cipher}"));
+	}
+
+	private ConfigDelta nextDelta() throws Exception {
+		Message<?> message = this.published.poll(5, TimeUnit.SECONDS);
+		assertNotNull("no delta published", message);
+		return ConfigDelta.fromJson(message.getPayload());
+	}
+
+	private void commit(String properties) throws Exception {
+		Files.write(new File(this.git.getRepository().getWorkTree(), "reservation-service.properties").toPath(),
+				properties.getBytes(StandardCharsets.UTF_8));
+		this.git.add().addFilepattern("reservation-service.properties").call();
+		this.git.commit().setMessage("change message").call();
+	}
+}
@@ -0,0 +1,16 @@
+package com.example;
+
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.messaging.MessageChannel;
+
+/**
+ * Binding of {@link RegistryEventPublisher}, subscribers use the same destination without a consumer
+ * group so every gateway instance hears about every instance.
+ */
+public interface RegistryEventChannels {
+
+	String OUTPUT = "registryEventOutput";
+
+	@Output(OUTPUT)
+	MessageChannel registryEventOutput();
+}
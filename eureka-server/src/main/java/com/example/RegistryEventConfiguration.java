@@ -0,0 +1,24 @@
+package com.example;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.stream.annotation.EnableBinding;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registry event push over the redis binder, only with eureka.push.enabled: a plain eureka server
+ * doesn't need redis. The fast profile turns it on, see eureka-service-fast.properties.
+ */
+@Configuration
+@ConditionalOnProperty("eureka.push.enabled")
+@EnableBinding(RegistryEventChannels.class)
+class RegistryEventConfiguration {
+
+	@Bean
+	RegistryEventPublisher registryEventPublisher(RegistryEventChannels channels, CounterService counterService,
+			@Value("${eureka.push.queue-capacity:10000}") int queueCapacity) {
+		return new RegistryEventPublisher(channels, counterService, queueCapacity);
+	}
+}
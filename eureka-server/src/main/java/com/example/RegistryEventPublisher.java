@@ -0,0 +1,94 @@
+package com.example;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.netflix.appinfo.InstanceInfo;
+
+/**
+ * Pushes a {@link RegistryEvent} the moment an instance registers UP or cancels, so subscribers don't
+ * wait for the response cache and their next delta fetch. Registrations replicated from a peer are
+ * left to the peer that took them, each registration is pushed once.
+ *
+ * The registry events are published inside the registry write, so sending is handed to a single
+ * thread behind a queue of eureka.push.queue-capacity events: a slow or unreachable binder never holds
+ * up a registration, events that don't fit or fail to send are counted and dropped. Subscribers still
+ * get the change with their next delta fetch.
+ *
+ * Counters: eureka.push.registered, .canceled, .skipped, .dropped, .failed
+ */
+class RegistryEventPublisher implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(RegistryEventPublisher.class);
+
+	private final MessageChannel output;
+
+	private final CounterService counterService;
+
+	private final ThreadPoolExecutor sender;
+
+	RegistryEventPublisher(RegistryEventChannels channels, CounterService counterService, int queueCapacity) {
+		this.output = channels.registryEventOutput();
+		this.counterService = counterService;
+		this.sender = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+			Thread thread = new Thread(runnable, "registry-event-publisher");
+			thread.setDaemon(true);
+			return thread;
+		}, (runnable, executor) -> counterService.increment("eureka.push.dropped"));
+	}
+
+	@EventListener
+	public void registered(EurekaInstanceRegisteredEvent event) {
+		InstanceInfo instance = event.getInstanceInfo();
+		if (event.isReplication() || instance.getStatus() != InstanceInfo.InstanceStatus.UP) {
+			// STARTING instances register again once they are UP
+			counterService.increment("eureka.push.skipped");
+			return;
+		}
+		publish(RegistryEvent.registered(instance.getAppName(), instance.getId(), instance.getHostName(), instance.getPort(),
+				instance.getMetadata().get("zone")));
+		counterService.increment("eureka.push.registered");
+	}
+
+	@EventListener
+	public void canceled(EurekaInstanceCanceledEvent event) {
+		if (event.isReplication()) {
+			counterService.increment("eureka.push.skipped");
+			return;
+		}
+		publish(RegistryEvent.canceled(event.getAppName(), event.getServerId()));
+		counterService.increment("eureka.push.canceled");
+	}
+
+	private void publish(RegistryEvent event) {
+		event.setPublishedAt(System.currentTimeMillis());
+		sender.execute(() -> send(event));
+	}
+
+	private void send(RegistryEvent event) {
+		try {
+			output.send(MessageBuilder.withPayload(event.toJson()).build());
+			log.debug("Pushed {} {} of {}", event.getType(), event.getInstanceId(), event.getApp());
+		} catch (RuntimeException ex) {
+			counterService.increment("eureka.push.failed");
+			log.error("Could not push {} {} of {}", event.getType(), event.getInstanceId(), event.getApp(), ex);
+		}
+	}
+
+	@Override
+	public void destroy() throws InterruptedException {
+		sender.shutdown();
+		sender.awaitTermination(5, TimeUnit.SECONDS);
+	}
+}
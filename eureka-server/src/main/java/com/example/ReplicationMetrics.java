@@ -0,0 +1,90 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceCanceledEvent;
+import org.springframework.cloud.netflix.eureka.server.event.EurekaInstanceRegisteredEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.netflix.servo.DefaultMonitorRegistry;
+import com.netflix.servo.monitor.CompositeMonitor;
+import com.netflix.servo.monitor.Monitor;
+
+/**
+ * Peer replication as this node sees it. Lag is measured where replicated registrations arrive: the
+ * node that took the registration stamped its lastUpdatedTimestamp when writing its own registry, so
+ * the lag is from that write to this one; nodes sharing a host share the clock. Dropped and queued
+ * tasks come from the servo monitors of eureka's batching replication dispatchers, which drop tasks
+ * beyond max-elements-in-peer-replication-pool or older than max-time-for-replication.
+ *
+ * Metrics: eureka.replication.received, .lag-ms (last), .lag-max-ms (since the last read), .dropped, .queued
+ */
+@Component
+class ReplicationMetrics implements PublicMetrics {
+
+	private final AtomicLong received = new AtomicLong();
+
+	private final AtomicLong maxLagMs = new AtomicLong();
+
+	private volatile long lagMs;
+
+	@EventListener
+	public void registered(EurekaInstanceRegisteredEvent event) {
+		if (!event.isReplication()) {
+			return;
+		}
+		long lag = Math.max(0, System.currentTimeMillis() - event.getInstanceInfo().getLastUpdatedTimestamp());
+		received.incrementAndGet();
+		lagMs = lag;
+		maxLagMs.accumulateAndGet(lag, Math::max);
+	}
+
+	@EventListener
+	public void canceled(EurekaInstanceCanceledEvent event) {
+		if (event.isReplication()) {
+			received.incrementAndGet();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		long[] dispatchers = new long[2];
+		sum(DefaultMonitorRegistry.getInstance().getRegisteredMonitors(), dispatchers);
+		List<Metric<?>> metrics = new ArrayList<>();
+		metrics.add(new Metric<>("eureka.replication.received", received.get()));
+		metrics.add(new Metric<>("eureka.replication.lag-ms", lagMs));
+		metrics.add(new Metric<>("eureka.replication.lag-max-ms", maxLagMs.getAndSet(0)));
+		metrics.add(new Metric<>("eureka.replication.dropped", dispatchers[0]));
+		metrics.add(new Metric<>("eureka.replication.queued", dispatchers[1]));
+		return metrics;
+	}
+
+	/**
+	 * @param totals dropped tasks (queue overflows and expired tasks) and queued tasks over all peers
+	 */
+	private static void sum(Collection<? extends Monitor<?>> monitors, long[] totals) {
+		for (Monitor<?> monitor : monitors) {
+			if (monitor instanceof CompositeMonitor) {
+				sum(((CompositeMonitor<?>) monitor).getMonitors(), totals);
+				continue;
+			}
+			String name = monitor.getConfig().getName();
+			Object value = monitor.getValue();
+			if (!(value instanceof Number) || !name.toLowerCase(Locale.ROOT).contains("replication")) {
+				continue;
+			}
+			if (name.endsWith("queueOverflows") || name.endsWith("expiredTasks")) {
+				totals[0] += ((Number) value).longValue();
+			} else if (name.endsWith("QueueSize")) {
+				totals[1] += ((Number) value).longValue();
+			}
+		}
+	}
+}
@@ -0,0 +1,276 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Three eureka servers replicating to each other with the cluster profile from ../repo, under heavy
+ * registration churn: 3000 registrations and cancellations of 300 instances from 8 threads, every
+ * instance talking to one node as real clients stick to their first service url. All nodes must end
+ * up with exactly the instances left registered, without replication tasks being dropped.
+ *
+ * Each node runs in a class loader of its own: eureka's jersey resources find their registry through
+ * the static EurekaServerContextHolder, so nodes sharing classes would all serve the last node's registry.
+ */
+public class EurekaPeerReplicationTests {
+
+	private static final Logger log = LoggerFactory.getLogger(EurekaPeerReplicationTests.class);
+
+	private static final int NODES = 3;
+
+	private static final int INSTANCES = 300;
+
+	private static final int OPERATIONS = 3000;
+
+	private static final int THREADS = 8;
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final RestTemplate http = new RestTemplate();
+
+	private final List<Node> nodes = new ArrayList<>();
+
+	@Before
+	public void startCluster() throws Exception {
+		// servo's default registry exports to the platform mbean server, which the nodes would share
+		System.setProperty("com.netflix.servo.DefaultMonitorRegistry.registryClass", "com.netflix.servo.BasicMonitorRegistry");
+		int[] ports = freePorts(NODES);
+		for (int i = 0; i < NODES; i++) {
+			List<String> peers = new ArrayList<>();
+			for (int j = 0; j < NODES; j++) {
+				if (j != i) {
+					peers.add("http://localhost:" + ports[j] + "/eureka/");
+				}
+			}
+			nodes.add(Node.start(ports[i], "--spring.cloud.config.enabled=false",
+					"--spring.config.location=file:../repo/",
+					"--spring.config.name=application,eureka-service",
+					// fast for the read-write response cache, registry reads see replicated changes at once;
+					// a fresh cluster, the nodes must not wait for a registry to sync from each other
+					"--spring.profiles.active=fast,cluster,cluster-bootstrap",
+					"--server.port=" + ports[i],
+					"--eureka.client.service-url.defaultZone=" + String.join(",", peers),
+					"--eureka.client.register-with-eureka=false",
+					"--eureka.client.fetch-registry=false",
+					"--spring.jmx.enabled=false"));
+		}
+	}
+
+	@After
+	public void stopCluster() throws Exception {
+		for (Node node : nodes) {
+			node.close();
+		}
+		System.clearProperty("com.netflix.servo.DefaultMonitorRegistry.registryClass");
+	}
+
+	@Test
+	public void nodesConvergeUnderChurn() throws Exception {
+		Map<String, Boolean> registered = new ConcurrentHashMap<>();
+		ExecutorService churn = Executors.newFixedThreadPool(THREADS);
+		for (int t = 0; t < THREADS; t++) {
+			int thread = t;
+			churn.execute(() -> {
+				Random random = new Random(thread);
+				// instances are partitioned over the threads, operations on one instance stay in order
+				for (int op = 0; op < OPERATIONS / THREADS; op++) {
+					int instance = thread + THREADS * random.nextInt(INSTANCES / THREADS);
+					String host = "churn-" + instance;
+					Node owner = nodes.get(instance % NODES);
+					if (registered.getOrDefault(host, false)) {
+						cancel(owner, host);
+						registered.put(host, false);
+					} else {
+						register(owner, host);
+						registered.put(host, true);
+					}
+				}
+			});
+		}
+		churn.shutdown();
+		assertTrue(churn.awaitTermination(1, TimeUnit.MINUTES));
+		long churnedAt = System.nanoTime();
+
+		Set<String> expected = registered.entrySet().stream().filter(Map.Entry::getValue).map(Map.Entry::getKey)
+				.collect(Collectors.toSet());
+		long deadline = churnedAt + TimeUnit.SECONDS.toNanos(30);
+		for (Node node : nodes) {
+			while (!expected.equals(instances(node)) && System.nanoTime() < deadline) {
+				Thread.sleep(100);
+			}
+			assertEquals("instances on node " + node.port, expected, instances(node));
+		}
+		log.info("{} nodes converged on {} instances {}ms after the churn", NODES, expected.size(),
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - churnedAt));
+
+		long received = 0;
+		for (Node node : nodes) {
+			JsonNode metrics = JSON.readTree(http.getForObject(node.url("/metrics"), String.class));
+			log.info("node {}: {} replicated, lag max {}ms", node.port,
+					metrics.path("eureka.replication.received").asLong(), metrics.path("eureka.replication.lag-max-ms").asLong());
+			assertEquals(0, metrics.path("eureka.replication.dropped").asLong());
+			received += metrics.path("eureka.replication.received").asLong();
+		}
+		// every change taken by one node reaches the two others
+		assertTrue("replicated " + received, received >= 2L * expected.size());
+	}
+
+	private void register(Node node, String host) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		http.postForEntity(node.url("/eureka/apps/RESERVATION-SERVICE"), new HttpEntity<>(instance(host), headers), Void.class);
+	}
+
+	private void cancel(Node node, String host) {
+		try {
+			http.delete(node.url("/eureka/apps/RESERVATION-SERVICE/" + host + ":reservation-service:8080"));
+		} catch (HttpClientErrorException ex) {
+			// unknown to the node, nothing to cancel
+		}
+	}
+
+	private Set<String> instances(Node node) throws IOException {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+		String body = http.exchange(node.url("/eureka/apps"), HttpMethod.GET, new HttpEntity<>(headers), String.class).getBody();
+		Set<String> hosts = new HashSet<>();
+		for (JsonNode host : JSON.readTree(body).findValues("hostName")) {
+			if (host.asText().startsWith("churn-")) {
+				hosts.add(host.asText());
+			}
+		}
+		return hosts;
+	}
+
+	private static String instance(String host) {
+		return "{\"instance\":{"
+				+ "\"instanceId\":\"" + host + ":reservation-service:8080\","
+				+ "\"hostName\":\"" + host + "\","
+				+ "\"app\":\"RESERVATION-SERVICE\","
+				+ "\"ipAddr\":\"127.0.0.1\","
+				+ "\"status\":\"UP\","
+				+ "\"overriddenstatus\":\"UNKNOWN\","
+				+ "\"port\":{\"$\":8080,\"@enabled\":\"true\"},"
+				+ "\"securePort\":{\"$\":8443,\"@enabled\":\"false\"},"
+				+ "\"countryId\":1,"
+				+ "\"dataCenterInfo\":{\"@class\":\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\",\"name\":\"MyOwn\"},"
+				+ "\"leaseInfo\":{\"renewalIntervalInSecs\":30,\"durationInSecs\":90},"
+				+ "\"lastDirtyTimestamp\":\"" + System.currentTimeMillis() + "\","
+				+ "\"vipAddress\":\"reservation-service\","
+				+ "\"secureVipAddress\":\"reservation-service\"}}";
+	}
+
+	private static int[] freePorts(int count) throws IOException {
+		ServerSocket[] sockets = new ServerSocket[count];
+		int[] ports = new int[count];
+		try {
+			for (int i = 0; i < count; i++) {
+				sockets[i] = new ServerSocket(0);
+				ports[i] = sockets[i].getLocalPort();
+			}
+		} finally {
+			for (ServerSocket socket : sockets) {
+				if (socket != null) {
+					socket.close();
+				}
+			}
+		}
+		return ports;
+	}
+
+	/**
+	 * eureka server started through reflection in its own class loader over the test class path
+	 */
+	private static final class Node implements Closeable {
+
+		private final int port;
+
+		private final URLClassLoader loader;
+
+		private final Object context;
+
+		private Node(int port, URLClassLoader loader, Object context) {
+			this.port = port;
+			this.loader = loader;
+			this.context = context;
+		}
+
+		static Node start(int port, String... args) throws Exception {
+			URLClassLoader loader = new URLClassLoader(classPath(), ClassLoader.getSystemClassLoader().getParent());
+			Thread current = Thread.currentThread();
+			ClassLoader previous = current.getContextClassLoader();
+			current.setContextClassLoader(loader);
+			try {
+				Class<?> application = loader.loadClass(EurekaServerApplication.class.getName());
+				Object context = loader.loadClass("org.springframework.boot.SpringApplication")
+						.getMethod("run", Object.class, String[].class)
+						.invoke(null, application, args);
+				return new Node(port, loader, context);
+			} finally {
+				current.setContextClassLoader(previous);
+			}
+		}
+
+		String url(String path) {
+			return "http://localhost:" + port + path;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				context.getClass().getMethod("close").invoke(context);
+			} catch (ReflectiveOperationException ex) {
+				throw new IllegalStateException(ex);
+			} finally {
+				loader.close();
+			}
+		}
+
+		/**
+		 * surefire's manifest-only jar is followed by URLClassLoader like any other class path jar
+		 */
+		private static URL[] classPath() throws MalformedURLException {
+			String[] entries = System.getProperty("java.class.path").split(File.pathSeparator);
+			URL[] urls = new URL[entries.length];
+			for (int i = 0; i < entries.length; i++) {
+				urls[i] = new File(entries[i]).toURI().toURL();
+			}
+			return urls;
+		}
+	}
+}
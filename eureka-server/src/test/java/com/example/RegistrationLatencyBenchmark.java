@@ -0,0 +1,197 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.embedded.EmbeddedWebApplicationContext;
+import org.springframework.cloud.stream.test.binder.MessageCollector;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.web.client.RestTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Registration to routable latency of 500 instances registered from local threads against an
+ * in-process eureka server configured from ../repo, once for the given profile. "push" is when the
+ * {@link RegistryEvent} reaches a subscriber, after which the gateway adds the instance to ribbon at
+ * once; the test binder stands in for redis, add a redis round trip. "delta" simulates a gateway
+ * without push: its eureka client fetches /eureka/apps/delta every
+ * eureka.client.registry-fetch-interval-seconds and ribbon copies what it fetched every
+ * ribbon.ServerListRefreshInterval. Compare the default profile with the fast one; not part of the
+ * test suite, run from the eureka-server directory with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.example.RegistrationLatencyBenchmark -Dexec.classpathScope=test -Dexec.args=fast}.
+ */
+public class RegistrationLatencyBenchmark {
+
+	private static final int INSTANCES = 500;
+
+	private static final int REGISTERING_THREADS = 16;
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	public static void main(String[] args) throws Exception {
+		String profile = args.length > 0 ? args[0] : "fast";
+		ConfigurableApplicationContext server = new SpringApplicationBuilder(EurekaServerApplication.class)
+				.profiles(profile)
+				.run("--spring.cloud.config.enabled=false",
+						"--spring.config.location=file:../repo/",
+						"--spring.config.name=application,eureka-service",
+						"--server.port=0");
+		try {
+			run(server, profile);
+		} finally {
+			server.close();
+		}
+	}
+
+	private static void run(ConfigurableApplicationContext server, String profile) throws Exception {
+		Environment environment = server.getEnvironment();
+		String apps = "http://localhost:" + ((EmbeddedWebApplicationContext) server).getEmbeddedServletContainer().getPort() + "/eureka/apps/";
+		long fetchMs = TimeUnit.SECONDS.toMillis(environment.getProperty("eureka.client.registry-fetch-interval-seconds", Long.class, 30L));
+		long ribbonMs = environment.getProperty("ribbon.ServerListRefreshInterval", Long.class, 30000L);
+		RestTemplate http = new RestTemplate();
+
+		Map<String, Long> registered = new ConcurrentHashMap<>();
+		Map<String, Long> pushed = new ConcurrentHashMap<>();
+		Map<String, Long> fetched = new ConcurrentHashMap<>();
+		Map<String, Long> routable = new ConcurrentHashMap<>();
+
+		// push is only enabled by the fast profile
+		boolean push = !server.getBeansOfType(RegistryEventChannels.class).isEmpty();
+		Thread subscriber = !push ? null : daemon("registry-event-subscriber", () -> {
+			BlockingQueue<Message<?>> events = server.getBean(MessageCollector.class)
+					.forChannel(server.getBean(RegistryEventChannels.class).registryEventOutput());
+			while (true) {
+				Message<?> message = events.take();
+				pushed.putIfAbsent(RegistryEvent.fromJson(message.getPayload()).getHostName(), System.nanoTime());
+			}
+		});
+		// a gateway started before the instances: full fetch once, then deltas
+		fetch(http, apps, fetched);
+		Thread eurekaClient = daemon("eureka-client", () -> {
+			while (true) {
+				Thread.sleep(fetchMs);
+				fetch(http, apps + "delta", fetched);
+			}
+		});
+		Thread ribbon = daemon("ribbon-server-list", () -> {
+			while (true) {
+				Thread.sleep(ribbonMs);
+				long now = System.nanoTime();
+				for (String host : fetched.keySet()) {
+					routable.putIfAbsent(host, now);
+				}
+			}
+		});
+
+		ExecutorService registering = Executors.newFixedThreadPool(REGISTERING_THREADS);
+		for (int i = 0; i < INSTANCES; i++) {
+			String host = "sim-" + i + ".local";
+			registering.execute(() -> {
+				HttpHeaders headers = new HttpHeaders();
+				headers.setContentType(MediaType.APPLICATION_JSON);
+				long start = System.nanoTime();
+				http.postForEntity(apps + "RESERVATION-SERVICE", new HttpEntity<>(instance(host), headers), Void.class);
+				registered.put(host, start);
+			});
+		}
+		registering.shutdown();
+		registering.awaitTermination(1, TimeUnit.MINUTES);
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(3 * (fetchMs + ribbonMs) + 30000);
+		while (((push && pushed.size() < INSTANCES) || routable.size() < INSTANCES) && System.nanoTime() < deadline) {
+			Thread.sleep(100);
+		}
+		if (subscriber != null) {
+			subscriber.interrupt();
+		}
+		eurekaClient.interrupt();
+		ribbon.interrupt();
+
+		System.out.printf("profile %s, %d instances, fetch every %dms, ribbon refresh every %dms%n", profile, INSTANCES,
+				fetchMs, ribbonMs);
+		System.out.printf("%8s %10s %10s %10s %10s%n", "path", "seen", "p50 (ms)", "p99 (ms)", "max (ms)");
+		report("push", registered, pushed);
+		report("delta", registered, routable);
+	}
+
+	private static void fetch(RestTemplate http, String url, Map<String, Long> fetched) throws Exception {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setAccept(Arrays.asList(MediaType.APPLICATION_JSON));
+		String body = http.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class).getBody();
+		long now = System.nanoTime();
+		for (JsonNode host : JSON.readTree(body).findValues("hostName")) {
+			fetched.putIfAbsent(host.asText(), now);
+		}
+	}
+
+	private static String instance(String host) {
+		return "{\"instance\":{"
+				+ "\"instanceId\":\"" + host + ":reservation-service:8080\","
+				+ "\"hostName\":\"" + host + "\","
+				+ "\"app\":\"RESERVATION-SERVICE\","
+				+ "\"ipAddr\":\"127.0.0.1\","
+				+ "\"status\":\"UP\","
+				+ "\"overriddenstatus\":\"UNKNOWN\","
+				+ "\"port\":{\"$\":8080,\"@enabled\":\"true\"},"
+				+ "\"securePort\":{\"$\":8443,\"@enabled\":\"false\"},"
+				+ "\"countryId\":1,"
+				+ "\"dataCenterInfo\":{\"@class\":\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\",\"name\":\"MyOwn\"},"
+				+ "\"leaseInfo\":{\"renewalIntervalInSecs\":30,\"durationInSecs\":90},"
+				+ "\"metadata\":{\"zone\":\"defaultZone\"},"
+				+ "\"vipAddress\":\"reservation-service\","
+				+ "\"secureVipAddress\":\"reservation-service\"}}";
+	}
+
+	private static void report(String path, Map<String, Long> registered, Map<String, Long> seen) {
+		List<Long> latencies = new ArrayList<>();
+		for (Map.Entry<String, Long> registration : registered.entrySet()) {
+			Long at = seen.get(registration.getKey());
+			if (at != null) {
+				latencies.add(TimeUnit.NANOSECONDS.toMillis(at - registration.getValue()));
+			}
+		}
+		latencies.sort(null);
+		if (latencies.isEmpty()) {
+			System.out.printf("%8s %10d%n", path, 0);
+			return;
+		}
+		System.out.printf("%8s %10d %10d %10d %10d%n", path, latencies.size(), latencies.get(latencies.size() / 2),
+				latencies.get(latencies.size() * 99 / 100), latencies.get(latencies.size() - 1));
+	}
+
+	private static Thread daemon(String name, Loop loop) {
+		Thread thread = new Thread(() -> {
+			try {
+				loop.run();
+			} catch (InterruptedException ex) {
+				// benchmark done
+			} catch (Exception ex) {
+				throw new IllegalStateException(ex);
+			}
+		}, name);
+		thread.setDaemon(true);
+		thread.start();
+		return thread;
+	}
+
+	private interface Loop {
+
+		void run() throws Exception;
+	}
+}
@@ -0,0 +1,85 @@
+package com.example.loadtest;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a Spring Boot fat jar inside this JVM. Every application gets its own class loader whose
+ * parent is the extension class loader, so reservation-client and reservation-service (which both
+ * define com.example.Reservation, and keep Hystrix/Archaius state in statics) don't see each other.
+ */
+final class InProcessApplication {
+
+	private final String name;
+
+	private final int port;
+
+	private InProcessApplication(String name, int port) {
+		this.name = name;
+		this.port = port;
+	}
+
+	/**
+	 * @param name used for the launcher thread
+	 * @param jar repackaged boot jar
+	 * @param port server.port to use
+	 * @param properties passed as command line arguments, so the bootstrap context sees them too
+	 */
+	static InProcessApplication start(String name, Path jar, int port, Map<String, String> properties) throws IOException {
+		List<String> args = new ArrayList<>();
+		properties.forEach((key, value) -> args.add("--" + key + "=" + value));
+		args.add("--server.port=" + port);
+		URLClassLoader loader = new URLClassLoader(new URL[] { jar.toUri().toURL() }, ClassLoader.getSystemClassLoader().getParent());
+		Thread launcher = new Thread(() -> {
+			try {
+				Method main = loader.loadClass("org.springframework.boot.loader.JarLauncher").getMethod("main", String[].class);
+				main.invoke(null, (Object) args.toArray(new String[args.size()]));
+			} catch (Exception ex) {
+				throw new IllegalStateException("Could not start " + name, ex);
+			}
+		}, name);
+		launcher.setContextClassLoader(loader);
+		launcher.setDaemon(true);
+		launcher.start();
+		return new InProcessApplication(name, port);
+	}
+
+	/**
+	 * polls /health until the application answers
+	 */
+	void awaitReady(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (System.nanoTime() < deadline) {
+			try {
+				HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl() + "/health").openConnection();
+				connection.setConnectTimeout(500);
+				connection.setReadTimeout(2000);
+				// DOWN (503) still means the web stack is up, redis or discovery may report down here
+				if (connection.getResponseCode() > 0) {
+					connection.disconnect();
+					return;
+				}
+			} catch (IOException notYet) {
+				// keep polling
+			}
+			Thread.sleep(500);
+		}
+		throw new IllegalStateException(name + " did not start within " + unit.toSeconds(timeout) + "s");
+	}
+
+	String baseUrl() {
+		return "http://localhost:" + port;
+	}
+
+	int getPort() {
+		return port;
+	}
+}
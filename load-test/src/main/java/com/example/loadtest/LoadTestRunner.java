@@ -0,0 +1,147 @@
+package com.example.loadtest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+
+import redis.embedded.RedisServer;
+
+/**
+ * Starts an embedded redis, reservation-service and reservation-client in this JVM and drives
+ * open-model load through the gateway. Eureka is replaced by a static ribbon server list and the
+ * config server by the properties under {@code repo/}.
+ *
+ * Arguments (key=value): rate (req/s per scenario, 100), duration (s, 30), warmup (s, 10),
+ * scenarios (write,names,bookmarks), repo (../repo), apps (target/apps).
+ */
+public class LoadTestRunner {
+
+	private static final String[] BOOKMARK_USERS = "jhoeller,dsyer,pwebb,ogierke,rwinch,mfisher,mpollack,jlong".split(",");
+
+	public static void main(String[] argv) throws Exception {
+		Map<String, String> args = new HashMap<>();
+		for (String arg : argv) {
+			String[] pair = arg.split("=", 2);
+			args.put(pair[0], pair.length > 1 ? pair[1] : "");
+		}
+		double rate = Double.parseDouble(args.getOrDefault("rate", "100"));
+		long duration = Long.parseLong(args.getOrDefault("duration", "30"));
+		long warmup = Long.parseLong(args.getOrDefault("warmup", "10"));
+		String[] scenarios = args.getOrDefault("scenarios", "write,names,bookmarks").split(",");
+		Path repo = Paths.get(args.getOrDefault("repo", "../repo"));
+		Path apps = Paths.get(args.getOrDefault("apps", "target/apps"));
+
+		int redisPort = freePort();
+		RedisServer redis = new RedisServer(redisPort);
+		redis.start();
+		try {
+			Map<String, String> common = new LinkedHashMap<>();
+			common.put("spring.cloud.config.enabled", "false");
+			common.put("eureka.client.enabled", "false");
+			common.put("ribbon.eureka.enabled", "false");
+			common.put("spring.zipkin.enabled", "false");
+			common.put("logging.level.root", "WARN");
+
+			Map<String, String> serviceProperties = repoProperties(repo, "reservation-service");
+			serviceProperties.putAll(common);
+			serviceProperties.put("spring.redis.port", String.valueOf(redisPort));
+			InProcessApplication service = InProcessApplication.start("reservation-service",
+					apps.resolve("reservation-service.jar"), freePort(), serviceProperties);
+			service.awaitReady(3, TimeUnit.MINUTES);
+
+			Map<String, String> clientProperties = repoProperties(repo, "reservation-client");
+			clientProperties.putAll(common);
+			clientProperties.put("spring.redis.port", String.valueOf(redisPort));
+			clientProperties.put("reservation-service.ribbon.listOfServers", "localhost:" + service.getPort());
+			clientProperties.put("zuul.routes.reservation-service.path", "/reservation-service/**");
+			clientProperties.put("zuul.routes.reservation-service.serviceId", "reservation-service");
+			InProcessApplication client = InProcessApplication.start("reservation-client",
+					apps.resolve("reservation-client.jar"), freePort(), clientProperties);
+			client.awaitReady(3, TimeUnit.MINUTES);
+
+			try (CloseableHttpAsyncClient http = HttpAsyncClients.custom()
+					.setMaxConnTotal(2000).setMaxConnPerRoute(2000).build()) {
+				http.start();
+				OpenModelLoadGenerator generator = new OpenModelLoadGenerator(http);
+				System.out.println(OpenModelLoadGenerator.Result.header());
+				for (String scenario : scenarios) {
+					Supplier<HttpUriRequest> requests = scenario(scenario, client.baseUrl());
+					if (warmup > 0) {
+						generator.run(requests, rate, warmup);
+					}
+					System.out.println(generator.run(requests, rate, duration).format(scenario));
+				}
+			}
+		} finally {
+			redis.stop();
+		}
+		// the applications run on daemon threads but keep non-daemon pools alive
+		System.exit(0);
+	}
+
+	private static Supplier<HttpUriRequest> scenario(String name, String gateway) {
+		switch (name) {
+		case "write":
+			AtomicLong sequence = new AtomicLong();
+			return () -> {
+				HttpPost post = new HttpPost(gateway + "/reservations");
+				post.setEntity(new StringEntity("{\"reservationName\":\"load-" + sequence.incrementAndGet() + "\"}",
+						ContentType.APPLICATION_JSON));
+				return post;
+			};
+		case "names":
+			return () -> new HttpGet(gateway + "/reservations/names");
+		case "bookmarks":
+			return () -> new HttpGet(gateway + "/reservation-service/"
+					+ BOOKMARK_USERS[ThreadLocalRandom.current().nextInt(BOOKMARK_USERS.length)] + "/bookmarks");
+		default:
+			throw new IllegalArgumentException("Unknown scenario " + name);
+		}
+	}
+
+	/**
+	 * @return repo/application.properties overlaid with repo/{application}.properties
+	 */
+	private static Map<String, String> repoProperties(Path repo, String application) throws IOException {
+		Map<String, String> result = new LinkedHashMap<>();
+		for (String file : new String[] { "application.properties", application + ".properties" }) {
+			Path path = repo.resolve(file);
+			if (Files.exists(path)) {
+				Properties properties = new Properties();
+				try (Reader reader = Files.newBufferedReader(path, StandardCharsets.ISO_8859_1)) {
+					properties.load(reader);
+				}
+				properties.stringPropertyNames().forEach(key -> result.put(key, properties.getProperty(key)));
+			}
+		}
+		// ports come from the runner
+		result.remove("server.port");
+		return result;
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
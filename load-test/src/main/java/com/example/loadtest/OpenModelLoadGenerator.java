@@ -0,0 +1,108 @@
+package com.example.loadtest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Open workload model: requests are started at a fixed arrival rate no matter how many are still
+ * outstanding. Latency is measured from the intended start time, so a stalled server shows up in
+ * the percentiles instead of silently lowering the offered load (coordinated omission).
+ */
+final class OpenModelLoadGenerator {
+
+	private final CloseableHttpAsyncClient client;
+
+	OpenModelLoadGenerator(CloseableHttpAsyncClient client) {
+		this.client = client;
+	}
+
+	/**
+	 * @param requests builds the next request
+	 * @param ratePerSecond arrival rate
+	 * @param durationSeconds how long to keep sending
+	 * @return latencies in microseconds, errors and completion counts
+	 */
+	Result run(Supplier<HttpUriRequest> requests, double ratePerSecond, long durationSeconds) throws InterruptedException {
+		Result result = new Result();
+		long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+		long total = (long) (ratePerSecond * durationSeconds);
+		CountDownLatch done = new CountDownLatch((int) total);
+		long start = System.nanoTime();
+		for (long i = 0; i < total; i++) {
+			long intendedStart = start + i * intervalNanos;
+			long wait = intendedStart - System.nanoTime();
+			if (wait > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			this.client.execute(requests.get(), new FutureCallback<HttpResponse>() {
+
+				@Override
+				public void completed(HttpResponse response) {
+					EntityUtils.consumeQuietly(response.getEntity());
+					if (response.getStatusLine().getStatusCode() >= 400) {
+						result.errors.incrementAndGet();
+					}
+					record();
+				}
+
+				@Override
+				public void failed(Exception ex) {
+					result.errors.incrementAndGet();
+					record();
+				}
+
+				@Override
+				public void cancelled() {
+					result.errors.incrementAndGet();
+					record();
+				}
+
+				private void record() {
+					result.latencyMicros.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart));
+					done.countDown();
+				}
+			});
+		}
+		done.await(durationSeconds + 60, TimeUnit.SECONDS);
+		result.elapsedNanos = System.nanoTime() - start;
+		return result;
+	}
+
+	static final class Result {
+
+		final Histogram latencyMicros = new ConcurrentHistogram(3);
+
+		final AtomicLong errors = new AtomicLong();
+
+		long elapsedNanos;
+
+		double throughput() {
+			return latencyMicros.getTotalCount() / (elapsedNanos / 1e9);
+		}
+
+		String format(String scenario) {
+			return String.format("%-10s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f", scenario,
+					latencyMicros.getTotalCount(), errors.get(), throughput(),
+					latencyMicros.getValueAtPercentile(50) / 1000.0,
+					latencyMicros.getValueAtPercentile(99) / 1000.0,
+					latencyMicros.getValueAtPercentile(99.9) / 1000.0,
+					latencyMicros.getMaxValue() / 1000.0);
+		}
+
+		static String header() {
+			return String.format("%-10s %9s %7s %10s %9s %9s %9s %9s", "scenario", "requests", "errors", "req/s",
+					"p50 ms", "p99 ms", "p999 ms", "max ms");
+		}
+	}
+}
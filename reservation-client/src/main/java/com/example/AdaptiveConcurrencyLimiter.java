@@ -0,0 +1,92 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * AIMD concurrency limit for calls through the gateway. Every call that completes within
+ * {@code latencyThresholdMs} without a server error adds 1/limit, so the limit grows by about one per
+ * round of calls; a slow or failed call multiplies it by {@code backoff}. Calls over the limit are
+ * rejected right away instead of queueing behind a slow reservation-service.
+ *
+ * The limit only governs these calls: hystrix semaphores of individual commands keep their own
+ * configured sizes. For the same reason the limit and rejections are actuator metrics only and don't
+ * appear on hystrix.stream or turbine, which carry nothing but command and thread pool metrics; the
+ * only way to put them there was resizing the default command semaphore. Chart them from /metrics.
+ *
+ * Metrics: gateway.limit.current, gateway.limit.inflight, gateway.limit.rejected
+ */
+class AdaptiveConcurrencyLimiter implements PublicMetrics {
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private final int minLimit;
+
+	private final int maxLimit;
+
+	private final long latencyThresholdNanos;
+
+	private final double backoff;
+
+	private volatile double limit;
+
+	AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMs, double backoff) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMs);
+		this.backoff = backoff;
+		this.limit = initialLimit;
+	}
+
+	/**
+	 * @return false if the limit is reached; otherwise the caller must call {@link #release(long, boolean)}
+	 */
+	boolean tryAcquire() {
+		while (true) {
+			int current = inFlight.get();
+			if (current >= (int) limit) {
+				rejected.incrementAndGet();
+				return false;
+			}
+			if (inFlight.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @param latencyNanos how long the call took
+	 * @param failed true for a server error or timeout
+	 */
+	void release(long latencyNanos, boolean failed) {
+		inFlight.decrementAndGet();
+		synchronized (this) {
+			double next = failed || latencyNanos > latencyThresholdNanos
+					? Math.max(minLimit, limit * backoff)
+					: Math.min(maxLimit, limit + 1.0 / limit);
+			this.limit = next;
+		}
+	}
+
+	int getLimit() {
+		return (int) limit;
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>(3);
+		metrics.add(new Metric<>("gateway.limit.current", getLimit()));
+		metrics.add(new Metric<>("gateway.limit.inflight", inFlight.get()));
+		metrics.add(new Metric<>("gateway.limit.rejected", rejected.get()));
+		return metrics;
+	}
+}
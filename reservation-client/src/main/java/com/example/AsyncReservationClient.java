@@ -0,0 +1,69 @@
+package com.example;
+
+import java.net.URI;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerClient;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import com.example.ribbon.ServerLatencyTracker;
+
+/**
+ * Non-blocking counterpart of the load balanced RestTemplate calls. Ribbon picks the instance,
+ * the request itself runs on the pooled NIO client behind {@link AsyncRestTemplate}, so no
+ * servlet thread is parked while reservation-service answers. Calls are timed for
+ * {@link ServerLatencyTracker} like those of the RestTemplate, up to the decoded response.
+ */
+@Component
+class AsyncReservationClient {
+
+	private static final URI RESERVATIONS = URI.create("http://reservation-service/reservations");
+
+	private final LoadBalancerClient loadBalancer;
+
+	private final AsyncRestTemplate asyncRestTemplate;
+
+	private final ServerLatencyTracker tracker;
+
+	@Autowired
+	AsyncReservationClient(LoadBalancerClient loadBalancer, AsyncRestTemplate asyncRestTemplate, ServerLatencyTracker tracker) {
+		this.loadBalancer = loadBalancer;
+		this.asyncRestTemplate = asyncRestTemplate;
+		this.tracker = tracker;
+	}
+
+	/**
+	 * @return future completing with the reservation names, or failing if no instance is available
+	 * @see ReservationNamesExtractor
+	 */
+	public ListenableFuture<List<String>> getReservationNames() {
+		ServiceInstance instance = this.loadBalancer.choose(RESERVATIONS.getHost());
+		if (instance == null) {
+			SettableListenableFuture<List<String>> failed = new SettableListenableFuture<>();
+			failed.setException(new IllegalStateException("No instances available for " + RESERVATIONS.getHost()));
+			return failed;
+		}
+		URI uri = this.loadBalancer.reconstructURI(instance, RESERVATIONS);
+		String hostPort = instance.getHost() + ":" + instance.getPort();
+		long begin = this.tracker.begin(hostPort);
+		ListenableFuture<List<String>> names;
+		try {
+			names = this.asyncRestTemplate.execute(uri, HttpMethod.GET,
+					request -> request.getHeaders().setAccept(ReservationNamesExtractor.ACCEPT), new ReservationNamesExtractor());
+		} catch (RuntimeException ex) {
+			this.tracker.end(hostPort, begin, true);
+			throw ex;
+		}
+		// an error status is an answer, only I/O failures are charged the failure penalty
+		names.addCallback(result -> this.tracker.end(hostPort, begin, false),
+				ex -> this.tracker.end(hostPort, begin, !(ex instanceof HttpStatusCodeException)));
+		return names;
+	}
+}
@@ -0,0 +1,96 @@
+package com.example;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds gateway requests over the {@link AdaptiveConcurrencyLimiter} limit with an immediate 503 and
+ * feeds the latency and outcome of the others back into it. Async requests are measured until they
+ * complete, not until the servlet thread is released. Rejections are counted by the limiter.
+ */
+class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+	private final AdaptiveConcurrencyLimiter limiter;
+
+	ConcurrencyLimitFilter(AdaptiveConcurrencyLimiter limiter) {
+		this.limiter = limiter;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		if (!this.limiter.tryAcquire()) {
+			response.setHeader("Retry-After", "1");
+			response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Gateway concurrency limit reached");
+			return;
+		}
+		long start = System.nanoTime();
+		boolean async = false;
+		try {
+			filterChain.doFilter(request, response);
+			if (request.isAsyncStarted()) {
+				async = true;
+				request.getAsyncContext().addListener(new ReleasingListener(start));
+			}
+		} catch (IOException | ServletException | RuntimeException ex) {
+			this.limiter.release(System.nanoTime() - start, true);
+			throw ex;
+		}
+		if (!async) {
+			this.limiter.release(System.nanoTime() - start, response.getStatus() >= 500);
+		}
+	}
+
+	@Override
+	protected boolean shouldNotFilterAsyncDispatch() {
+		// the permit is held by the initial dispatch until the async request completes
+		return true;
+	}
+
+	private class ReleasingListener implements AsyncListener {
+
+		private final long start;
+
+		private boolean released;
+
+		ReleasingListener(long start) {
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			HttpServletResponse response = (HttpServletResponse) event.getSuppliedResponse();
+			release(response.getStatus() >= 500);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+			release(true);
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			release(true);
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+		}
+
+		private synchronized void release(boolean failed) {
+			if (!released) {
+				released = true;
+				limiter.release(System.nanoTime() - start, failed);
+			}
+		}
+	}
+}
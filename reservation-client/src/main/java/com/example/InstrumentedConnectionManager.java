@@ -0,0 +1,95 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.Metric;
+
+/**
+ * Keep-alive connection pool of the gateway RestTemplate that measures how long callers wait to lease
+ * a connection. A growing wait means gateway.http.max-per-route is too small for the traffic to one
+ * reservation-service instance, not that the instance is slow.
+ *
+ * Metrics: gateway.http.pool.leased, .available, .pending, .max, .utilization, .lease.count,
+ * .lease.wait-mean-ms, .lease.wait-max-ms (largest since the previous read)
+ * Counter: gateway.http.pool.lease.timeout
+ */
+class InstrumentedConnectionManager extends PoolingHttpClientConnectionManager implements PublicMetrics {
+
+	private final CounterService counterService;
+
+	private final LongAdder leases = new LongAdder();
+
+	private final LongAdder leaseWaitNanos = new LongAdder();
+
+	private final AtomicLong maxLeaseWaitNanos = new AtomicLong();
+
+	InstrumentedConnectionManager(CounterService counterService, long timeToLiveMs) {
+		super(timeToLiveMs, TimeUnit.MILLISECONDS);
+		this.counterService = counterService;
+	}
+
+	@Override
+	public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+		ConnectionRequest request = super.requestConnection(route, state);
+		return new ConnectionRequest() {
+
+			@Override
+			public HttpClientConnection get(long timeout, TimeUnit tunit)
+					throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+				long start = System.nanoTime();
+				try {
+					return request.get(timeout, tunit);
+				} catch (ConnectionPoolTimeoutException ex) {
+					counterService.increment("gateway.http.pool.lease.timeout");
+					throw ex;
+				} finally {
+					recordLeaseWait(System.nanoTime() - start);
+				}
+			}
+
+			@Override
+			public boolean cancel() {
+				return request.cancel();
+			}
+		};
+	}
+
+	private void recordLeaseWait(long nanos) {
+		leases.increment();
+		leaseWaitNanos.add(nanos);
+		long max = maxLeaseWaitNanos.get();
+		while (nanos > max && !maxLeaseWaitNanos.compareAndSet(max, nanos)) {
+			max = maxLeaseWaitNanos.get();
+		}
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		PoolStats stats = getTotalStats();
+		long count = leases.sum();
+		List<Metric<?>> metrics = new ArrayList<>(8);
+		metrics.add(new Metric<>("gateway.http.pool.leased", stats.getLeased()));
+		metrics.add(new Metric<>("gateway.http.pool.available", stats.getAvailable()));
+		metrics.add(new Metric<>("gateway.http.pool.pending", stats.getPending()));
+		metrics.add(new Metric<>("gateway.http.pool.max", stats.getMax()));
+		metrics.add(new Metric<>("gateway.http.pool.utilization", stats.getMax() == 0 ? 0.0 : (double) stats.getLeased() / stats.getMax()));
+		metrics.add(new Metric<>("gateway.http.pool.lease.count", count));
+		metrics.add(new Metric<>("gateway.http.pool.lease.wait-mean-ms", count == 0 ? 0.0 : leaseWaitNanos.sum() / 1e6 / count));
+		metrics.add(new Metric<>("gateway.http.pool.lease.wait-max-ms", maxLeaseWaitNanos.getAndSet(0) / 1e6));
+		return metrics;
+	}
+}
@@ -0,0 +1,125 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * An instance registering UP or cancelling its lease, as JSON on the registry-events destination.
+ * Must stay in sync with the copy in eureka-server. Carries just enough for a subscriber to add
+ * the instance to a load balancer before its next delta fetch sees it.
+ */
+final class RegistryEvent {
+
+	static final String REGISTERED = "REGISTERED";
+
+	static final String CANCELED = "CANCELED";
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private String type;
+
+	private String app;
+
+	private String instanceId;
+
+	private String hostName;
+
+	private int port;
+
+	private String zone;
+
+	private long publishedAt;
+
+	static RegistryEvent registered(String app, String instanceId, String hostName, int port, String zone) {
+		RegistryEvent event = new RegistryEvent();
+		event.type = REGISTERED;
+		event.app = app;
+		event.instanceId = instanceId;
+		event.hostName = hostName;
+		event.port = port;
+		event.zone = zone;
+		return event;
+	}
+
+	static RegistryEvent canceled(String app, String instanceId) {
+		RegistryEvent event = new RegistryEvent();
+		event.type = CANCELED;
+		event.app = app;
+		event.instanceId = instanceId;
+		return event;
+	}
+
+	String toJson() {
+		try {
+			return JSON.writeValueAsString(this);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @param payload JSON as String or UTF-8 bytes
+	 */
+	static RegistryEvent fromJson(Object payload) throws IOException {
+		String json = payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) : payload.toString();
+		return JSON.readValue(json, RegistryEvent.class);
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public String getApp() {
+		return app;
+	}
+
+	public void setApp(String app) {
+		this.app = app;
+	}
+
+	public String getInstanceId() {
+		return instanceId;
+	}
+
+	public void setInstanceId(String instanceId) {
+		this.instanceId = instanceId;
+	}
+
+	public String getHostName() {
+		return hostName;
+	}
+
+	public void setHostName(String hostName) {
+		this.hostName = hostName;
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	public String getZone() {
+		return zone;
+	}
+
+	public void setZone(String zone) {
+		this.zone = zone;
+	}
+
+	public long getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(long publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+}
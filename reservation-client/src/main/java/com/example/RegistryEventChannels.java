@@ -0,0 +1,16 @@
+package com.example;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Binding of {@link RegistryEventListener}. No consumer group, every gateway instance updates its own
+ * load balancers.
+ */
+public interface RegistryEventChannels {
+
+	String INPUT = "registryEventInput";
+
+	@Input(INPUT)
+	SubscribableChannel registryEventInput();
+}
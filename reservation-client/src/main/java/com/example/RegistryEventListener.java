@@ -0,0 +1,80 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.netflix.ribbon.SpringClientFactory;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+
+import com.example.ribbon.PushedServers;
+import com.netflix.loadbalancer.DynamicServerListLoadBalancer;
+import com.netflix.loadbalancer.ILoadBalancer;
+
+/**
+ * Applies the {@link RegistryEvent}s eureka-server pushes for the ribbon clients listed in
+ * gateway.registry.push.clients: the instance goes into {@link PushedServers} and the client's load
+ * balancer re-reads its server list right away instead of on its next ServerListRefreshInterval.
+ * Other apps are ignored so no ribbon context is created for them.
+ *
+ * Counters: gateway.registry.push.registered, .canceled, .ignored
+ * Gauge: gateway.registry.push.latency-ms (published by eureka-server to routable here)
+ */
+@MessageEndpoint
+class RegistryEventListener {
+
+	private static final Logger log = LoggerFactory.getLogger(RegistryEventListener.class);
+
+	private final PushedServers pushedServers;
+
+	private final SpringClientFactory clientFactory;
+
+	private final CounterService counterService;
+
+	private final GaugeService gaugeService;
+
+	private final Set<String> clients;
+
+	@Autowired
+	RegistryEventListener(PushedServers pushedServers, SpringClientFactory clientFactory, CounterService counterService,
+			GaugeService gaugeService, @Value("${gateway.registry.push.clients:reservation-service}") String[] clients) {
+		this.pushedServers = pushedServers;
+		this.clientFactory = clientFactory;
+		this.counterService = counterService;
+		this.gaugeService = gaugeService;
+		this.clients = new HashSet<>(Arrays.asList(clients));
+	}
+
+	@ServiceActivator(inputChannel = RegistryEventChannels.INPUT)
+	public void receive(Message<?> message) throws IOException {
+		RegistryEvent event = RegistryEvent.fromJson(message.getPayload());
+		String client = event.getApp().toLowerCase(Locale.ROOT);
+		if (!clients.contains(client)) {
+			counterService.increment("gateway.registry.push.ignored");
+			return;
+		}
+		if (RegistryEvent.REGISTERED.equals(event.getType())) {
+			pushedServers.registered(client, event.getInstanceId(), event.getHostName(), event.getPort(), event.getZone());
+			counterService.increment("gateway.registry.push.registered");
+		} else {
+			pushedServers.canceled(client, event.getInstanceId());
+			counterService.increment("gateway.registry.push.canceled");
+		}
+		ILoadBalancer loadBalancer = clientFactory.getLoadBalancer(client);
+		if (loadBalancer instanceof DynamicServerListLoadBalancer) {
+			((DynamicServerListLoadBalancer<?>) loadBalancer).updateListOfServers();
+		}
+		gaugeService.submit("gateway.registry.push.latency-ms", System.currentTimeMillis() - event.getPublishedAt());
+		log.debug("{} {} of {} is routable", event.getType(), event.getInstanceId(), client);
+	}
+}
@@ -1,36 +1,62 @@
 package com.example;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.actuate.metrics.CounterService;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
 import org.springframework.cloud.client.circuitbreaker.EnableCircuitBreaker;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.cloud.netflix.ribbon.RibbonClients;
 import org.springframework.cloud.netflix.zuul.EnableZuulProxy;
 import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
 import org.springframework.cloud.stream.annotation.EnableBinding;
-import org.springframework.cloud.stream.annotation.Output;
 import org.springframework.cloud.stream.messaging.Source;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.ParameterizedTypeReference;
-import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.messaging.MessageChannel;
-import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.AsyncRestTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.example.ribbon.LatencyRecordingRequestFactory;
+import com.example.ribbon.PushedServerListConfiguration;
+import com.example.ribbon.RibbonRuleConfiguration;
+import com.example.ribbon.ServerLatencyTracker;
 import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
 
 /**
  * Enables all required APIs
@@ -38,9 +64,10 @@ import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
  *
  */
 @EnableZuulProxy//Proxy load balancing server
-@EnableBinding(Source.class)//added redis message channel
+@EnableBinding({Source.class, RegistryEventChannels.class})//added redis message channel, registry events from eureka-server
 @EnableCircuitBreaker//Hystrix circuit breaker enablement
 @EnableDiscoveryClient//register to service discovery
+@RibbonClients(defaultConfiguration = {RibbonRuleConfiguration.class, PushedServerListConfiguration.class})//rule per client from config, pushed instances, see ribbon package
 @SpringBootApplication
 public class ReservationClientApplication {
 	
@@ -64,37 +91,135 @@ public class ReservationClientApplication {
 @RequestMapping("/reservations")
 class ReservationApiGatewayRestController{
 	
+	private static final Logger log = LoggerFactory.getLogger(ReservationApiGatewayRestController.class);
+	
 	@Autowired
 	@LoadBalanced //uses ribbon to load balance the client calls.
 	private RestTemplate restTemplate; 
 	
-	//Message channel to publish addition to reservation
 	@Autowired
-	@Output(Source.OUTPUT)
-	private MessageChannel messageChannel;
+	private AsyncReservationClient asyncReservationClient;
+	
+	@Autowired
+	private ReservationNameLookup reservationNameLookup;
+	
+	private static final String NAMES_KEY = "all";
+	
+	@Autowired
+	private StaleWhileRevalidateCache<Collection<String>> reservationNamesCache;
+	
+	@Value("${gateway.async.timeout-ms:1000}")
+	private long asyncTimeoutMs;
 	
-	//helps json to parameterized conversion of json into given types
-	ParameterizedTypeReference<Resources<Reservation>> ptr = new  ParameterizedTypeReference<Resources<Reservation>>() {};
+	//publishes additions to reservation over the redis message channel
+	@Autowired
+	private ReservationPublisher reservationPublisher;
 	
+	/**
+	 * @param reservation
+	 * @return 202 with the correlation id to poll {@link #getReservationStatus(String)} with, 503 if the publish queue is full
+	 */
 	@RequestMapping(method=RequestMethod.POST)
-	public void write(@RequestBody Reservation reservation){
-		System.out.println("Received reservation request: "+reservation.toString());
-		this.messageChannel.send(MessageBuilder.withPayload(reservation.getReservationName()).build());
+	public ResponseEntity<Map<String, String>> write(@RequestBody Reservation reservation){
+		log.debug("Received reservation request: {}", reservation);
+		String correlationId = UUID.randomUUID().toString();
+		if (!this.reservationPublisher.offer(correlationId, reservation.getReservationName())) {
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
+		HttpHeaders httpHeaders = new HttpHeaders();
+		httpHeaders.setLocation(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}/status").buildAndExpand(correlationId).toUri());
+		return new ResponseEntity<>(Collections.singletonMap("correlationId", correlationId), httpHeaders, HttpStatus.ACCEPTED);
+	}
+	
+	/**
+	 * @param correlationId returned by {@link #write(Reservation)}
+	 * @return PERSISTED with the reservation id once reservation-service stored it, PENDING before
+	 */
+	@HystrixCommand(fallbackMethod="getReservationStatusFallbackMethod")
+	@RequestMapping("/{correlationId}/status")
+	public Map<String, Object> getReservationStatus(@PathVariable String correlationId){
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("correlationId", correlationId);
+		try {
+			Reservation persisted = this.restTemplate.getForObject(
+					"http://reservation-service/reservations/search/by-correlation-id?correlationId={correlationId}",
+					Reservation.class, correlationId);
+			status.put("status", "PERSISTED");
+			status.put("id", persisted.getId());
+		} catch (HttpClientErrorException ex) {
+			if (ex.getStatusCode() != HttpStatus.NOT_FOUND) {
+				throw ex;
+			}
+			status.put("status", "PENDING");
+		}
+		return status;
+	}
+	
+	/**
+	 * @return UNKNOWN if reservation-service can't be asked
+	 */
+	public Map<String, Object> getReservationStatusFallbackMethod(String correlationId){
+		Map<String, Object> status = new LinkedHashMap<>();
+		status.put("correlationId", correlationId);
+		status.put("status", "UNKNOWN");
+		return status;
+	}
+	
+	/**
+	 * concurrent lookups are collapsed into one reservation-service call, see {@link ReservationNameLookup}
+	 * @param name matched case-insensitively
+	 * @return 404 if there is no such reservation, 503 if reservation-service can't be asked
+	 */
+	@RequestMapping("/by-name/{name}")
+	public ResponseEntity<Reservation> getReservationByName(@PathVariable String name){
+		try {
+			Reservation reservation = this.reservationNameLookup.findByName(name);
+			return reservation == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND) : new ResponseEntity<>(reservation, HttpStatus.OK);
+		} catch (HystrixRuntimeException ex) {
+			log.warn("Lookup of reservation {} failed", name, ex);
+			return new ResponseEntity<>(HttpStatus.SERVICE_UNAVAILABLE);
+		}
 	}
 	
 	//circuit breaker
 	@HystrixCommand(fallbackMethod="getReservationNamesFallbackMethod")
 	@RequestMapping("/names")
 	public Collection<String> getReservationNames(){
-		ResponseEntity<Resources<Reservation>> responseEntity = this.restTemplate.exchange("http://reservation-service/reservations", HttpMethod.GET, null, ptr);
-		return responseEntity.getBody()
-				.getContent().stream().map(Reservation::getReservationName).collect(Collectors.toList());
+		return this.reservationNamesCache.get(NAMES_KEY, this::fetchReservationNames);
+	}
+	
+	//names are streamed off the HAL response, no Resources<Reservation> is built
+	private Collection<String> fetchReservationNames(){
+		return this.restTemplate.execute("http://reservation-service/reservations", HttpMethod.GET,
+				request -> request.getHeaders().setAccept(ReservationNamesExtractor.ACCEPT), new ReservationNamesExtractor());
 	}
 	
 	/**
-	 * @return empty list if reservation-service fails
+	 * Non-blocking variant of {@link #getReservationNames()}; the servlet thread is released while
+	 * reservation-service answers. Same fallback on error or timeout.
+	 * @return names, completed asynchronously
+	 */
+	@RequestMapping("/names/async")
+	public DeferredResult<Collection<String>> getReservationNamesAsync(){
+		DeferredResult<Collection<String>> deferredResult = new DeferredResult<>(this.asyncTimeoutMs);
+		deferredResult.onTimeout(() -> deferredResult.setResult(getReservationNamesFallbackMethod()));
+		this.asyncReservationClient.getReservationNames().addCallback(
+				names -> {
+					this.reservationNamesCache.put(NAMES_KEY, names);
+					deferredResult.setResult(names);
+				},
+				ex -> deferredResult.setResult(getReservationNamesFallbackMethod()));
+		return deferredResult;
+	}
+	
+	/**
+	 * @return last known names, or empty list if reservation-service fails before any call succeeded
 	 */
 	public Collection<String> getReservationNamesFallbackMethod(){
+		Collection<String> lastKnownGood = this.reservationNamesCache.getLastKnownGood(NAMES_KEY);
+		if (lastKnownGood != null) {
+			return lastKnownGood;
+		}
 		List<String> emptyList = Collections.emptyList();
 		//emptyList.add("Service is down.");
 		return emptyList;
@@ -108,10 +233,103 @@ class ReservationApiGatewayRestController{
 @Configuration
 class MyConfiguration {
 
+    /**
+     * calls are timed per instance for PeakEwmaRule and reuse pooled keep-alive connections,
+     * a route of the pool is one reservation-service instance
+     */
     @LoadBalanced
     @Bean
-    RestTemplate restTemplate() {
-        return new RestTemplate();
+    RestTemplate restTemplate(ServerLatencyTracker serverLatencyTracker, InstrumentedConnectionManager gatewayConnectionManager,
+    		@Value("${gateway.http.connect-timeout-ms:1000}") int connectTimeoutMs,
+    		@Value("${gateway.http.read-timeout-ms:2000}") int readTimeoutMs,
+    		@Value("${gateway.http.lease-timeout-ms:500}") int leaseTimeoutMs,
+    		@Value("${gateway.http.idle-evict-ms:30000}") long idleEvictMs,
+    		@Value("${gateway.http.keep-alive-ms:30000}") long keepAliveMs) {
+    	CloseableHttpClient httpClient = HttpClients.custom()
+    			.setConnectionManager(gatewayConnectionManager)
+    			.setDefaultRequestConfig(RequestConfig.custom()
+    					.setConnectTimeout(connectTimeoutMs)
+    					.setSocketTimeout(readTimeoutMs)
+    					.setConnectionRequestTimeout(leaseTimeoutMs)
+    					.build())
+    			.setKeepAliveStrategy((response, context) -> {
+    				long serverKeepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+    				return serverKeepAliveMs > 0 ? serverKeepAliveMs : keepAliveMs;
+    			})
+    			.evictExpiredConnections()
+    			.evictIdleConnections(idleEvictMs, TimeUnit.MILLISECONDS)
+    			.build();
+    	return new RestTemplate(new LatencyRecordingRequestFactory(new HttpComponentsClientHttpRequestFactory(httpClient), serverLatencyTracker));
+    }
+    
+    @Bean
+    InstrumentedConnectionManager gatewayConnectionManager(CounterService counterService,
+    		@Value("${gateway.http.max-total:200}") int maxTotal,
+    		@Value("${gateway.http.max-per-route:50}") int maxPerRoute,
+    		@Value("${gateway.http.time-to-live-ms:-1}") long timeToLiveMs,
+    		@Value("${gateway.http.validate-after-inactivity-ms:2000}") int validateAfterInactivityMs) {
+    	InstrumentedConnectionManager connectionManager = new InstrumentedConnectionManager(counterService, timeToLiveMs);
+    	connectionManager.setMaxTotal(maxTotal);
+    	connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+    	connectionManager.setValidateAfterInactivity(validateAfterInactivityMs);
+    	return connectionManager;
+    }
+    
+    /**
+     * names projection served stale while one background call refreshes it, see getReservationNames
+     */
+    @Bean
+    StaleWhileRevalidateCache<Collection<String>> reservationNamesCache(CounterService counterService,
+    		@Value("${gateway.names.cache.max-entries:16}") int maxEntries,
+    		@Value("${gateway.names.cache.ttl-ms:5000}") long ttlMs) {
+    	return new StaleWhileRevalidateCache<>("gateway.names.cache", maxEntries, ttlMs, counterService);
+    }
+    
+    /**
+     * adaptive limit for everything that calls reservation-service, see ConcurrencyLimitFilter
+     */
+    @Bean
+    AdaptiveConcurrencyLimiter concurrencyLimiter(
+    		@Value("${gateway.limit.initial:20}") int initialLimit,
+    		@Value("${gateway.limit.min:5}") int minLimit,
+    		@Value("${gateway.limit.max:500}") int maxLimit,
+    		@Value("${gateway.limit.latency-threshold-ms:500}") long latencyThresholdMs,
+    		@Value("${gateway.limit.backoff:0.9}") double backoff) {
+    	return new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, latencyThresholdMs, backoff);
+    }
+    
+    @Bean
+    FilterRegistrationBean concurrencyLimitFilter(AdaptiveConcurrencyLimiter concurrencyLimiter,
+    		@Value("${gateway.limit.enabled:true}") boolean enabled) {
+    	FilterRegistrationBean registration = new FilterRegistrationBean(new ConcurrencyLimitFilter(concurrencyLimiter));
+    	// only what calls reservation-service: POST /reservations and its status are answered locally in
+    	// well under a millisecond and would keep raising the limit
+    	registration.addUrlPatterns("/reservations/names", "/reservations/names/async", "/reservations/by-name/*",
+    			"/reservation-service/*");
+    	registration.setEnabled(enabled);
+    	return registration;
+    }
+    
+    /**
+     * pooled NIO client for the non-blocking gateway path; a handful of IO threads serve all connections.
+     * Converters are shared with the HAL aware restTemplate.
+     */
+    @Bean
+    AsyncRestTemplate asyncRestTemplate(RestTemplate restTemplate,
+    		@Value("${gateway.async.max-connections:200}") int maxConnections,
+    		@Value("${gateway.async.io-threads:0}") int ioThreads,
+    		@Value("${gateway.async.connect-timeout-ms:1000}") int connectTimeoutMs) {
+    	CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+    			.setMaxConnTotal(maxConnections)
+    			.setMaxConnPerRoute(maxConnections)
+    			.setDefaultIOReactorConfig(IOReactorConfig.custom()
+    					.setIoThreadCount(ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors())
+    					.setConnectTimeout(connectTimeoutMs)
+    					.build())
+    			.build();
+    	AsyncRestTemplate asyncRestTemplate = new AsyncRestTemplate(new HttpComponentsAsyncClientHttpRequestFactory(httpClient));
+    	asyncRestTemplate.setMessageConverters(new ArrayList<>(restTemplate.getMessageConverters()));
+    	return asyncRestTemplate;
     }
 }
 
@@ -0,0 +1,78 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import com.netflix.hystrix.HystrixCollapser.Scope;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixCollapser;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixCommand;
+import com.netflix.hystrix.contrib.javanica.annotation.HystrixProperty;
+
+/**
+ * Single name lookups for the gateway. Concurrent calls from all requests are collapsed for
+ * {@code timerDelayInMilliseconds} and sent to reservation-service as one by-names query. Window and
+ * batch size can be overridden with hystrix.collapser.reservationByName.* properties.
+ */
+@Service
+class ReservationNameLookup {
+
+	@Autowired
+	@LoadBalanced
+	private RestTemplate restTemplate;
+
+	private final ParameterizedTypeReference<Resources<Reservation>> ptr = new ParameterizedTypeReference<Resources<Reservation>>() {};
+
+	/**
+	 * @param name matched case-insensitively
+	 * @return the first reservation with that name, null if there is none
+	 */
+	@HystrixCollapser(batchMethod = "findByNames", collapserKey = "reservationByName", scope = Scope.GLOBAL,
+			collapserProperties = {
+					@HystrixProperty(name = "timerDelayInMilliseconds", value = "10"),
+					@HystrixProperty(name = "maxRequestsInBatch", value = "100") })
+	public Reservation findByName(String name) {
+		// javanica never runs this body, the collapser routes to findByNames
+		return null;
+	}
+
+	/**
+	 * @param names one per collapsed request, may repeat
+	 * @return one entry per name in the same order, null where nothing matched
+	 */
+	// own thread pool: with the gateway's default SEMAPHORE isolation the blocking call would run on the
+	// HystrixTimer thread that fires every collapser and timeout in the JVM
+	@HystrixCommand(commandKey = "reservationsByNames", threadPoolKey = "reservationsByNames",
+			commandProperties = @HystrixProperty(name = "execution.isolation.strategy", value = "THREAD"))
+	public List<Reservation> findByNames(List<String> names) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (String name : names) {
+			keys.add(name.toLowerCase(Locale.ROOT));
+		}
+		UriComponentsBuilder uri = UriComponentsBuilder.fromHttpUrl("http://reservation-service/reservations/search/by-names")
+				.queryParam("keys", keys.toArray());
+		Resources<Reservation> found = this.restTemplate.exchange(uri.build().encode().toUri(), HttpMethod.GET, null, ptr).getBody();
+		Map<String, Reservation> byKey = new HashMap<>();
+		for (Reservation reservation : found.getContent()) {
+			byKey.putIfAbsent(reservation.getReservationName().toLowerCase(Locale.ROOT), reservation);
+		}
+		List<Reservation> results = new ArrayList<>(names.size());
+		for (String name : names) {
+			results.add(byKey.get(name.toLowerCase(Locale.ROOT)));
+		}
+		return results;
+	}
+}
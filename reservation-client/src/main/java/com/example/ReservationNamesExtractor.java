@@ -0,0 +1,91 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Reads only the reservationName of every entry in _embedded.reservations from the HAL collection
+ * reservation-service renders, token by token off the response stream. Neither the body nor a
+ * Resources&lt;Reservation&gt; graph is ever held in memory; apart from the names themselves the
+ * allocation per response doesn't grow with the number of reservations.
+ */
+class ReservationNamesExtractor implements ResponseExtractor<List<String>> {
+
+	/**
+	 * Accept header of the request, reservation-service renders HAL for either
+	 */
+	static final List<MediaType> ACCEPT = Arrays.asList(MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON);
+
+	// thread-safe, and keeps the field name symbol table warm across responses
+	private static final JsonFactory JSON = new JsonFactory();
+
+	@Override
+	public List<String> extractData(ClientHttpResponse response) throws IOException {
+		return readNames(response.getBody());
+	}
+
+	/**
+	 * @param in HAL reservations collection, closed when done
+	 * @return reservation names in document order, empty if there is no _embedded.reservations
+	 */
+	static List<String> readNames(InputStream in) throws IOException {
+		List<String> names = new ArrayList<>();
+		try (JsonParser parser = JSON.createParser(in)) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new JsonParseException("Expected a HAL collection", parser.getCurrentLocation());
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				if (parser.nextToken() == JsonToken.START_OBJECT && "_embedded".equals(field)) {
+					readEmbedded(parser, names);
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+		return names;
+	}
+
+	private static void readEmbedded(JsonParser parser, List<String> names) throws IOException {
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String rel = parser.getCurrentName();
+			if (parser.nextToken() == JsonToken.START_ARRAY && "reservations".equals(rel)) {
+				readReservations(parser, names);
+			} else {
+				parser.skipChildren();
+			}
+		}
+	}
+
+	private static void readReservations(JsonParser parser, List<String> names) throws IOException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				continue;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String field = parser.getCurrentName();
+				parser.nextToken();
+				if ("reservationName".equals(field)) {
+					names.add(parser.getValueAsString());
+				} else {
+					parser.skipChildren();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.stream.messaging.Source;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decouples POST /reservations from the redis round trip. Writes are queued and a single publisher
+ * thread drains them in batches bounded by {@code gateway.publish.batch-size} and
+ * {@code gateway.publish.max-linger-ms}. Every reservation carries the correlation id handed back to the
+ * client, reservation-service stores it with the reservation.
+ *
+ * With {@code gateway.publish.envelope=true} a batch goes out as one {@link ReservationEnvelope} message,
+ * otherwise as one text/plain message per reservation with the correlation id in a header. Only turn
+ * the envelope on once every reservation-service instance understands it.
+ */
+@Component
+class ReservationPublisher implements SmartLifecycle {
+
+	static final String CORRELATION_ID_HEADER = "reservationCorrelationId";
+
+	private static final Logger log = LoggerFactory.getLogger(ReservationPublisher.class);
+
+	private final Source source;
+
+	private final CounterService counterService;
+
+	private final GaugeService gaugeService;
+
+	private final int batchSize;
+
+	private final long maxLingerMs;
+
+	private final boolean envelope;
+
+	private final BlockingQueue<PendingReservation> queue;
+
+	private volatile boolean running;
+
+	private Thread publisher;
+
+	@Autowired
+	ReservationPublisher(Source source, CounterService counterService, GaugeService gaugeService,
+			@Value("${gateway.publish.batch-size:100}") int batchSize,
+			@Value("${gateway.publish.max-linger-ms:10}") long maxLingerMs,
+			@Value("${gateway.publish.queue-capacity:10000}") int queueCapacity,
+			@Value("${gateway.publish.envelope:false}") boolean envelope) {
+		this.source = source;
+		this.counterService = counterService;
+		this.gaugeService = gaugeService;
+		this.batchSize = batchSize;
+		this.maxLingerMs = maxLingerMs;
+		this.envelope = envelope;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	/**
+	 * @param correlationId
+	 * @param reservationName
+	 * @return false if the queue is full, the caller should reject the request
+	 */
+	public boolean offer(String correlationId, String reservationName) {
+		boolean accepted = this.queue.offer(new PendingReservation(correlationId, reservationName));
+		if (!accepted) {
+			this.counterService.increment("gateway.publish.rejected");
+		}
+		return accepted;
+	}
+
+	private void drain() {
+		List<PendingReservation> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				PendingReservation first = queue.poll(maxLingerMs, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+				while (batch.size() < batchSize) {
+					queue.drainTo(batch, batchSize - batch.size());
+					long remaining = deadline - System.nanoTime();
+					if (batch.size() >= batchSize || remaining <= 0) {
+						break;
+					}
+					PendingReservation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				publish(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void publish(List<PendingReservation> batch) {
+		if (envelope) {
+			publishEnvelope(batch);
+		} else {
+			for (PendingReservation pending : batch) {
+				send(MessageBuilder.withPayload(pending.reservationName)
+						.setHeader(CORRELATION_ID_HEADER, pending.correlationId).build(), "reservation " + pending.correlationId);
+			}
+		}
+		this.gaugeService.submit("gateway.publish.batch.size", batch.size());
+		this.gaugeService.submit("gateway.publish.queue.depth", queue.size());
+	}
+
+	private void publishEnvelope(List<PendingReservation> batch) {
+		List<ReservationEnvelope.Record> records = new ArrayList<>(batch.size());
+		for (PendingReservation pending : batch) {
+			records.add(new ReservationEnvelope.Record(pending.correlationId, pending.reservationName, pending.acceptedAt));
+		}
+		byte[] payload = ReservationEnvelope.encode(records);
+		this.gaugeService.submit("gateway.publish.envelope.bytes", payload.length);
+		send(MessageBuilder.withPayload(payload).build(), "envelope of " + batch.size() + " reservations");
+	}
+
+	private void send(Message<?> message, String description) {
+		try {
+			this.source.output().send(message);
+		} catch (RuntimeException ex) {
+			this.counterService.increment("gateway.publish.failed");
+			log.error("Could not publish {}", description, ex);
+		}
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+		this.publisher = new Thread(this::drain, "reservation-publisher");
+		this.publisher.setDaemon(true);
+		this.publisher.start();
+	}
+
+	@Override
+	public void stop() {
+		// the publisher exits once the queue is empty
+		this.running = false;
+		try {
+			this.publisher.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return true;
+	}
+
+	/**
+	 * stopped late so the queue is drained while the output binding is still up
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MIN_VALUE / 2;
+	}
+
+	private static class PendingReservation {
+
+		final String correlationId;
+
+		final String reservationName;
+
+		final long acceptedAt = System.currentTimeMillis();
+
+		PendingReservation(String correlationId, String reservationName) {
+			this.correlationId = correlationId;
+			this.reservationName = reservationName;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.metrics.CounterService;
+
+/**
+ * Small in-process cache for gateway projections. Entries older than the ttl are still served
+ * while a single background refresh per key reloads them, and the newest value of every key is kept
+ * as last-known-good for Hystrix fallbacks. Size is bounded, least recently used entries are evicted.
+ *
+ * Counters (prefixed with the cache name): hit, miss, stale, refresh, refresh.failed, eviction
+ * @param <V> cached value
+ */
+class StaleWhileRevalidateCache<V> implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+
+	private final String name;
+
+	private final long ttlMs;
+
+	private final CounterService counterService;
+
+	private final Map<String, Entry<V>> entries;
+
+	private final ExecutorService refresher;
+
+	StaleWhileRevalidateCache(String name, int maxEntries, long ttlMs, CounterService counterService) {
+		this.name = name;
+		this.ttlMs = ttlMs;
+		this.counterService = counterService;
+		this.entries = new LinkedHashMap<String, Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+				boolean evict = size() > maxEntries;
+				if (evict) {
+					count("eviction");
+				}
+				return evict;
+			}
+		};
+		this.refresher = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, name + "-refresher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * @param key
+	 * @param loader called on the caller thread on a miss, in the background for a stale entry
+	 * @return fresh or stale value; a miss propagates loader failures
+	 */
+	public V get(String key, Supplier<V> loader) {
+		Entry<V> entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null) {
+			count("miss");
+			V value = loader.get();
+			put(key, value);
+			return value;
+		}
+		if (!entry.isExpired(ttlMs)) {
+			count("hit");
+			return entry.value;
+		}
+		count("stale");
+		if (entry.refreshing.compareAndSet(false, true)) {
+			refresher.execute(() -> {
+				try {
+					put(key, loader.get());
+					count("refresh");
+				} catch (RuntimeException ex) {
+					entry.refreshing.set(false);
+					count("refresh.failed");
+					log.warn("Refreshing {} entry '{}' failed, keeping stale value", name, key, ex);
+				}
+			});
+		}
+		return entry.value;
+	}
+
+	public void put(String key, V value) {
+		synchronized (entries) {
+			entries.put(key, new Entry<>(value));
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return the newest value loaded for key regardless of age, or null
+	 */
+	public V getLastKnownGood(String key) {
+		synchronized (entries) {
+			Entry<V> entry = entries.get(key);
+			return entry == null ? null : entry.value;
+		}
+	}
+
+	private void count(String event) {
+		this.counterService.increment(name + "." + event);
+	}
+
+	@Override
+	public void destroy() {
+		refresher.shutdownNow();
+	}
+
+	private static class Entry<V> {
+
+		final V value;
+
+		final long loadedAt = System.currentTimeMillis();
+
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		Entry(V value) {
+			this.value = value;
+		}
+
+		boolean isExpired(long ttlMs) {
+			return System.currentTimeMillis() - loadedAt > ttlMs;
+		}
+	}
+}
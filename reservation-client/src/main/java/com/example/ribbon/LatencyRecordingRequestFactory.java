@@ -0,0 +1,84 @@
+package com.example.ribbon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Times every request of a {@code @LoadBalanced} RestTemplate until its response headers arrive and
+ * reports it to the {@link ServerLatencyTracker} under the instance ribbon picked. The load balancer
+ * interceptor has already replaced the service id with host:port when the request is created here.
+ */
+public class LatencyRecordingRequestFactory implements ClientHttpRequestFactory {
+
+	private final ClientHttpRequestFactory delegate;
+
+	private final ServerLatencyTracker tracker;
+
+	public LatencyRecordingRequestFactory(ClientHttpRequestFactory delegate, ServerLatencyTracker tracker) {
+		this.delegate = delegate;
+		this.tracker = tracker;
+	}
+
+	@Override
+	public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+		return new TimedRequest(this.delegate.createRequest(uri, httpMethod));
+	}
+
+	static String hostPort(URI uri) {
+		int port = uri.getPort();
+		if (port < 0) {
+			port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+		}
+		return uri.getHost() + ":" + port;
+	}
+
+	private class TimedRequest implements ClientHttpRequest {
+
+		private final ClientHttpRequest request;
+
+		TimedRequest(ClientHttpRequest request) {
+			this.request = request;
+		}
+
+		@Override
+		public ClientHttpResponse execute() throws IOException {
+			String hostPort = hostPort(this.request.getURI());
+			long begin = tracker.begin(hostPort);
+			boolean failed = true;
+			try {
+				ClientHttpResponse response = this.request.execute();
+				failed = false;
+				return response;
+			} finally {
+				tracker.end(hostPort, begin, failed);
+			}
+		}
+
+		@Override
+		public OutputStream getBody() throws IOException {
+			return this.request.getBody();
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return this.request.getHeaders();
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return this.request.getMethod();
+		}
+
+		@Override
+		public URI getURI() {
+			return this.request.getURI();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package com.example.ribbon;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.ILoadBalancer;
+import com.netflix.loadbalancer.Server;
+
+/**
+ * Power of two choices over peak EWMA cost: picks two reachable instances at random and takes the one
+ * with the lower {@link ServerLatencyTracker#cost(String)}. A slow or pausing instance quickly ends
+ * up with the higher cost of nearly every pair, without the herding onto one instance that always
+ * picking the global minimum causes when several gateways share stale estimates.
+ *
+ * Only calls of the load balanced RestTemplate and AsyncReservationClient are measured. Zuul routes
+ * to the same client pick instances with this rule too, but ribbon's RestClient behind them doesn't
+ * report to the tracker: their load shows up only in the latency the measured calls see.
+ *
+ * Select it per client with &lt;client&gt;.ribbon.NFLoadBalancerRuleClassName, see {@link RibbonRuleConfiguration}.
+ */
+public class PeakEwmaRule extends AbstractLoadBalancerRule {
+
+	private final ServerLatencyTracker tracker;
+
+	private final Random random;
+
+	public PeakEwmaRule(ServerLatencyTracker tracker) {
+		this(tracker, null);
+	}
+
+	PeakEwmaRule(ServerLatencyTracker tracker, Random random) {
+		this.tracker = tracker;
+		this.random = random;
+	}
+
+	@Override
+	public void initWithNiwsConfig(IClientConfig clientConfig) {
+	}
+
+	@Override
+	public Server choose(Object key) {
+		return choose(getLoadBalancer(), key);
+	}
+
+	Server choose(ILoadBalancer lb, Object key) {
+		if (lb == null) {
+			return null;
+		}
+		List<Server> servers = lb.getReachableServers();
+		int count = servers.size();
+		if (count == 0) {
+			return null;
+		}
+		if (count == 1) {
+			return servers.get(0);
+		}
+		Random random = this.random != null ? this.random : ThreadLocalRandom.current();
+		int first = random.nextInt(count);
+		int second = random.nextInt(count - 1);
+		if (second >= first) {
+			second++;
+		}
+		Server a = servers.get(first);
+		Server b = servers.get(second);
+		return tracker.cost(a.getHostPort()) <= tracker.cost(b.getHostPort()) ? a : b;
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.ribbon;
+
+import java.util.List;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerList;
+
+/**
+ * Server list of one ribbon client with the instances the eureka server pushed merged in, see
+ * {@link PushedServers}.
+ */
+public class PushedServerList implements ServerList<Server> {
+
+	private final ServerList<? extends Server> delegate;
+
+	private final PushedServers pushedServers;
+
+	private final String clientName;
+
+	public PushedServerList(ServerList<? extends Server> delegate, PushedServers pushedServers, String clientName) {
+		this.delegate = delegate;
+		this.pushedServers = pushedServers;
+		this.clientName = clientName;
+	}
+
+	@Override
+	public List<Server> getInitialListOfServers() {
+		return pushedServers.merge(clientName, delegate.getInitialListOfServers());
+	}
+
+	@Override
+	public List<Server> getUpdatedListOfServers() {
+		return pushedServers.merge(clientName, delegate.getUpdatedListOfServers());
+	}
+}
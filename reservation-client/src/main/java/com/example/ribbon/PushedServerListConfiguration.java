@@ -0,0 +1,40 @@
+package com.example.ribbon;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.loadbalancer.ServerList;
+
+/**
+ * Default configuration of every ribbon client context next to {@link RibbonRuleConfiguration}: wraps
+ * whatever server list spring cloud set up for the client, eureka's by default, in a
+ * {@link PushedServerList}.
+ *
+ * Deliberately not a {@code @Configuration}, see {@link RibbonRuleConfiguration}.
+ */
+public class PushedServerListConfiguration {
+
+	@Bean
+	public static BeanPostProcessor pushedServerListPostProcessor(final PushedServers pushedServers,
+			@Value("${ribbon.client.name}") final String clientName) {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+				return bean;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+				if (bean instanceof ServerList && !(bean instanceof PushedServerList)) {
+					return new PushedServerList((ServerList<? extends Server>) bean, pushedServers, clientName);
+				}
+				return bean;
+			}
+		};
+	}
+}
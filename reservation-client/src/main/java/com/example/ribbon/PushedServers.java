@@ -0,0 +1,141 @@
+package com.example.ribbon;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.netflix.loadbalancer.Server;
+import com.netflix.niws.loadbalancer.DiscoveryEnabledServer;
+
+/**
+ * Instances the eureka server pushed before this gateway's own eureka client fetched them, per ribbon
+ * client. {@link PushedServerList} merges them into the servers ribbon reads from eureka's local cache:
+ * registered instances are added and cancelled ones dropped until that cache agrees, or at the latest
+ * until gateway.registry.push.ttl-ms has passed and the regular delta fetch decides alone.
+ */
+@Component
+public class PushedServers {
+
+	private final ConcurrentMap<String, ConcurrentMap<String, Pushed>> clients = new ConcurrentHashMap<>();
+
+	private final long ttlMs;
+
+	private final LongSupplier clock;
+
+	@Autowired
+	public PushedServers(@Value("${gateway.registry.push.ttl-ms:60000}") long ttlMs) {
+		this(ttlMs, System::currentTimeMillis);
+	}
+
+	PushedServers(long ttlMs, LongSupplier clock) {
+		this.ttlMs = ttlMs;
+		this.clock = clock;
+	}
+
+	/**
+	 * @param zone eureka zone of the instance, null to take the zone of the discovered servers
+	 */
+	public void registered(String client, String instanceId, String host, int port, String zone) {
+		Server server = new Server(host, port);
+		if (zone != null) {
+			server.setZone(zone);
+		}
+		server.setAlive(true);
+		pushed(client).put(instanceId, new Pushed(server, clock.getAsLong() + ttlMs));
+	}
+
+	public void canceled(String client, String instanceId) {
+		pushed(client).put(instanceId, new Pushed(null, clock.getAsLong() + ttlMs));
+	}
+
+	/**
+	 * @param discovered servers of the client in eureka's local cache
+	 * @return discovered servers with pushed registrations added and pushed cancellations removed
+	 */
+	public List<Server> merge(String client, List<? extends Server> discovered) {
+		ConcurrentMap<String, Pushed> pushed = clients.get(key(client));
+		if (pushed == null || pushed.isEmpty()) {
+			return new ArrayList<>(discovered);
+		}
+		long now = clock.getAsLong();
+		pushed.values().removeIf(entry -> entry.expiresAt <= now);
+		List<Server> merged = new ArrayList<>(discovered.size() + pushed.size());
+		Set<String> seen = new HashSet<>();
+		String zone = null;
+		for (Server server : discovered) {
+			String instanceId = instanceId(server);
+			seen.add(instanceId);
+			zone = server.getZone();
+			Pushed entry = pushed.get(instanceId);
+			if (entry == null) {
+				merged.add(server);
+			} else if (entry.server != null) {
+				// eureka's cache caught up with the registration
+				pushed.remove(instanceId, entry);
+				merged.add(server);
+			}
+		}
+		for (Map.Entry<String, Pushed> entry : pushed.entrySet()) {
+			Server server = entry.getValue().server;
+			if (seen.contains(entry.getKey())) {
+				continue;
+			}
+			if (server == null) {
+				// eureka's cache caught up with the cancellation
+				pushed.remove(entry.getKey(), entry.getValue());
+			} else {
+				if (entry.getValue().zoneless && zone != null) {
+					server.setZone(zone);
+				}
+				merged.add(server);
+			}
+		}
+		return merged;
+	}
+
+	private ConcurrentMap<String, Pushed> pushed(String client) {
+		return clients.computeIfAbsent(key(client), name -> new ConcurrentHashMap<>());
+	}
+
+	/**
+	 * eureka app names are upper case, ribbon client names usually not
+	 */
+	private static String key(String client) {
+		return client.toLowerCase(Locale.ROOT);
+	}
+
+	private static String instanceId(Server server) {
+		if (server instanceof DiscoveryEnabledServer) {
+			return ((DiscoveryEnabledServer) server).getInstanceInfo().getId();
+		}
+		return server.getId();
+	}
+
+	private static final class Pushed {
+
+		/**
+		 * null for a cancellation
+		 */
+		private final Server server;
+
+		private final boolean zoneless;
+
+		private final long expiresAt;
+
+		private Pushed(Server server, long expiresAt) {
+			this.server = server;
+			this.zoneless = server != null && Server.UNKNOWN_ZONE.equals(server.getZone());
+			this.expiresAt = expiresAt;
+		}
+	}
+}
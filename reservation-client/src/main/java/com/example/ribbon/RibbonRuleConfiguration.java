@@ -0,0 +1,42 @@
+package com.example.ribbon;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.context.annotation.Bean;
+
+import com.netflix.client.ClientFactory;
+import com.netflix.client.config.CommonClientConfigKey;
+import com.netflix.client.config.DefaultClientConfigImpl;
+import com.netflix.client.config.IClientConfig;
+import com.netflix.loadbalancer.AbstractLoadBalancerRule;
+import com.netflix.loadbalancer.IRule;
+import com.netflix.loadbalancer.ZoneAvoidanceRule;
+
+/**
+ * Default configuration of every ribbon client context, registered with {@code @RibbonClients}. Picks
+ * the load balancing rule from &lt;client&gt;.ribbon.NFLoadBalancerRuleClassName so it can be switched per
+ * client from the config server; without it the client keeps spring cloud's ZoneAvoidanceRule.
+ *
+ * Deliberately not a {@code @Configuration}: component scanning must not add it to the main context.
+ */
+public class RibbonRuleConfiguration {
+
+	@Bean
+	public IRule ribbonRule(IClientConfig config, ServerLatencyTracker tracker) {
+		String className = (String) config.getProperty(CommonClientConfigKey.NFLoadBalancerRuleClassName, null);
+		AbstractLoadBalancerRule rule;
+		if (className == null || className.equals(DefaultClientConfigImpl.DEFAULT_NFLOADBALANCER_RULE_CLASSNAME)) {
+			// ribbon fills in its own default when nothing is configured
+			rule = new ZoneAvoidanceRule();
+		} else if (className.equals(PeakEwmaRule.class.getName())) {
+			rule = new PeakEwmaRule(tracker);
+		} else {
+			try {
+				return (IRule) ClientFactory.instantiateInstanceWithClientConfig(className, config);
+			} catch (Exception ex) {
+				throw new BeanCreationException("ribbonRule", "Could not create rule " + className + " for " + config.getClientName(), ex);
+			}
+		}
+		rule.initWithNiwsConfig(config);
+		return rule;
+	}
+}
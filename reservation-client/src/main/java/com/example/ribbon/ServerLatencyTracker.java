@@ -0,0 +1,147 @@
+package com.example.ribbon;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+/**
+ * Peak EWMA latency and outstanding calls per upstream instance (host:port), fed by
+ * {@link LatencyRecordingRequestFactory} and read by {@link PeakEwmaRule}. A slower call than the
+ * current estimate replaces it right away, faster ones only pull it down with a decay of
+ * gateway.ribbon.peak-ewma.decay-ms, so an instance that stalls is avoided at once and only slowly
+ * trusted again. Estimates also decay while nothing is observed, so an avoided instance is probed
+ * again eventually.
+ *
+ * Metrics: gateway.ribbon.&lt;host:port&gt;.latency-ewma-ms, .pending
+ */
+@Component
+public class ServerLatencyTracker implements PublicMetrics {
+
+	/**
+	 * latency charged for a call that failed with an I/O error, fast connection refusals must not attract traffic
+	 */
+	static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/**
+	 * cost of an instance that has calls outstanding but never answered one, higher than any measured cost
+	 */
+	private static final double UNMEASURED_PENALTY = Long.MAX_VALUE >> 16;
+
+	private final ConcurrentMap<String, PeakEwma> servers = new ConcurrentHashMap<>();
+
+	private final double decayNanos;
+
+	private final LongSupplier clock;
+
+	@Autowired
+	public ServerLatencyTracker(@Value("${gateway.ribbon.peak-ewma.decay-ms:10000}") long decayMs) {
+		this(decayMs, System::nanoTime);
+	}
+
+	ServerLatencyTracker(long decayMs, LongSupplier clock) {
+		this.decayNanos = TimeUnit.MILLISECONDS.toNanos(decayMs);
+		this.clock = clock;
+	}
+
+	/**
+	 * @param hostPort instance the call goes to
+	 * @return start of the call, to pass to {@link #end(String, long, boolean)}
+	 */
+	public long begin(String hostPort) {
+		server(hostPort).begin();
+		return clock.getAsLong();
+	}
+
+	/**
+	 * @param hostPort instance the call went to
+	 * @param beginNanos returned by {@link #begin(String)}
+	 * @param failed true if the call failed before a response arrived
+	 */
+	public void end(String hostPort, long beginNanos, boolean failed) {
+		long now = clock.getAsLong();
+		long rtt = now - beginNanos;
+		server(hostPort).end(now, failed ? Math.max(rtt, FAILURE_PENALTY_NANOS) : rtt);
+	}
+
+	/**
+	 * @return latency estimate weighted by outstanding calls, 0 for an instance never called
+	 */
+	public double cost(String hostPort) {
+		PeakEwma server = servers.get(hostPort);
+		return server == null ? 0 : server.cost(clock.getAsLong());
+	}
+
+	private PeakEwma server(String hostPort) {
+		PeakEwma server = servers.get(hostPort);
+		return server != null ? server : servers.computeIfAbsent(hostPort, key -> new PeakEwma(clock.getAsLong()));
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>(servers.size() * 2);
+		long now = clock.getAsLong();
+		for (Map.Entry<String, PeakEwma> entry : servers.entrySet()) {
+			String prefix = "gateway.ribbon." + entry.getKey();
+			metrics.add(new Metric<>(prefix + ".latency-ewma-ms", entry.getValue().latency(now) / 1e6));
+			metrics.add(new Metric<>(prefix + ".pending", entry.getValue().pending));
+		}
+		return metrics;
+	}
+
+	private class PeakEwma {
+
+		private double latency;
+
+		private long stamp;
+
+		private int pending;
+
+		PeakEwma(long now) {
+			this.stamp = now;
+		}
+
+		synchronized void begin() {
+			pending++;
+		}
+
+		synchronized void end(long now, long rtt) {
+			pending--;
+			observe(now, rtt);
+		}
+
+		synchronized double cost(long now) {
+			observe(now, 0);
+			if (latency == 0 && pending > 0) {
+				return UNMEASURED_PENALTY + pending;
+			}
+			return latency * (pending + 1);
+		}
+
+		synchronized double latency(long now) {
+			observe(now, 0);
+			return latency;
+		}
+
+		private void observe(long now, double rtt) {
+			long elapsed = Math.max(now - stamp, 0);
+			stamp = now;
+			if (rtt > latency) {
+				latency = rtt;
+			} else {
+				double w = Math.exp(-elapsed / decayNanos);
+				latency = latency * w + rtt * (1 - w);
+			}
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package com.example.zuul;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.util.StreamUtils;
+
+import com.example.zuul.ZuulResponseCache.CachedResponse;
+import com.netflix.util.Pair;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Captures the upstream response of a request {@link ResponseCachePreFilter} let through, hands it to
+ * the requests collapsed onto it and caches it for as long as its Cache-Control allows
+ * (gateway.zuul.cache.ttl-ms without one). Responses without an ETag get one derived from the body.
+ * Only uncompressed 200 responses up to gateway.zuul.cache.max-body-bytes that don't Vary beyond the
+ * cache key, set no cookie and aren't private or no-store are shared, for a request with credentials
+ * only if marked shareable with them.
+ */
+@Component
+public class ResponseCachePostFilter extends ZuulFilter {
+
+	private final ZuulResponseCache cache;
+
+	@Autowired
+	public ResponseCachePostFilter(ZuulResponseCache cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public String filterType() {
+		return "post";
+	}
+
+	@Override
+	public int filterOrder() {
+		// before SendResponseFilter (1000) writes the body
+		return 900;
+	}
+
+	@Override
+	public boolean shouldFilter() {
+		return RequestContext.getCurrentContext().get(ZuulResponseCache.LEADER_KEY) != null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Object run() {
+		RequestContext ctx = RequestContext.getCurrentContext();
+		String key = (String) ctx.get(ZuulResponseCache.LEADER_KEY);
+		CompletableFuture<CachedResponse> leader = (CompletableFuture<CachedResponse>) ctx.get(ZuulResponseCache.LEADER_FUTURE_KEY);
+		CachedResponse response = null;
+		try {
+			response = capture(ctx);
+		} catch (IOException ex) {
+			ctx.setThrowable(ex);
+		} finally {
+			// always release the collapsed requests, with null they go upstream themselves;
+			// a request with credentials has none
+			if (leader != null) {
+				this.cache.complete(key, leader, response);
+			}
+		}
+		return null;
+	}
+
+	private CachedResponse capture(RequestContext ctx) throws IOException {
+		Long contentLength = ctx.getOriginContentLength();
+		if (ctx.getThrowable() != null || ctx.getResponseStatusCode() != HttpStatus.OK.value() || ctx.getResponseGZipped()
+				|| (contentLength != null && contentLength > this.cache.getMaxBodyBytes())) {
+			return null;
+		}
+		InputStream in = ctx.getResponseDataStream();
+		byte[] body = in == null ? new byte[0] : StreamUtils.copyToByteArray(in);
+		ctx.setResponseDataStream(new ByteArrayInputStream(body));
+		if (body.length > this.cache.getMaxBodyBytes()) {
+			return null;
+		}
+		List<Pair<String, String>> headers = new ArrayList<>(ctx.getZuulResponseHeaders());
+		String cacheControl = header(headers, HttpHeaders.CACHE_CONTROL);
+		boolean sharedWithCredentials = ZuulResponseCache.isSharedWithCredentials(cacheControl);
+		if (!ZuulResponseCache.isKeyedOn(header(headers, HttpHeaders.VARY)) || header(headers, HttpHeaders.SET_COOKIE) != null
+				|| ZuulResponseCache.isPrivate(cacheControl)
+				|| (this.cache.hasCredentials(ctx.getRequest()) && !sharedWithCredentials)) {
+			// meant for this caller alone, not even the requests collapsed onto it get it
+			return null;
+		}
+		String etag = header(headers, HttpHeaders.ETAG);
+		if (etag == null) {
+			etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+			headers.add(new Pair<>(HttpHeaders.ETAG, etag));
+			ctx.addZuulResponseHeader(HttpHeaders.ETAG, etag);
+		}
+		long ttlMs = this.cache.ttlMs(cacheControl);
+		CachedResponse response = new CachedResponse(headers, body, etag, ttlMs, sharedWithCredentials);
+		if (ttlMs > 0) {
+			this.cache.put((String) ctx.get(ZuulResponseCache.LEADER_KEY), response);
+		}
+		if (response.matches(ctx.getRequest().getHeader(HttpHeaders.IF_NONE_MATCH))) {
+			this.cache.count((String) ctx.get("proxy"), "not-modified");
+			ctx.setResponseStatusCode(HttpStatus.NOT_MODIFIED.value());
+			ctx.setResponseDataStream(null);
+		}
+		return response;
+	}
+
+	private static String header(List<Pair<String, String>> headers, String name) {
+		for (Pair<String, String> header : headers) {
+			if (name.equalsIgnoreCase(header.first())) {
+				return header.second();
+			}
+		}
+		return null;
+	}
+}
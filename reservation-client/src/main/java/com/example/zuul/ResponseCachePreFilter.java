@@ -0,0 +1,107 @@
+package com.example.zuul;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CompletableFuture;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.example.zuul.ZuulResponseCache.CachedResponse;
+import com.netflix.util.Pair;
+import com.netflix.zuul.ZuulFilter;
+import com.netflix.zuul.context.RequestContext;
+
+/**
+ * Answers proxied GETs from {@link ZuulResponseCache} when it can: a fresh entry is served without
+ * going upstream, as a 304 if the client's If-None-Match matches. On a miss only the first of several
+ * identical concurrent GETs is routed, the others wait for its response. Runs right after zuul has
+ * resolved the route. A request with Cache-Control: no-cache skips the cache but is still collapsed.
+ * Requests with credentials go upstream on their own, see {@link ZuulResponseCache}.
+ */
+@Component
+public class ResponseCachePreFilter extends ZuulFilter {
+
+	private final ZuulResponseCache cache;
+
+	private final boolean enabled;
+
+	@Autowired
+	public ResponseCachePreFilter(ZuulResponseCache cache, @Value("${gateway.zuul.cache.enabled:true}") boolean enabled) {
+		this.cache = cache;
+		this.enabled = enabled;
+	}
+
+	@Override
+	public String filterType() {
+		return "pre";
+	}
+
+	@Override
+	public int filterOrder() {
+		// PreDecorationFilter is 5 and sets the route id
+		return 6;
+	}
+
+	@Override
+	public boolean shouldFilter() {
+		RequestContext ctx = RequestContext.getCurrentContext();
+		return enabled && ctx.sendZuulResponse() && "GET".equals(ctx.getRequest().getMethod())
+				&& this.cache.isCached((String) ctx.get("proxy"));
+	}
+
+	@Override
+	public Object run() {
+		RequestContext ctx = RequestContext.getCurrentContext();
+		HttpServletRequest request = ctx.getRequest();
+		String route = (String) ctx.get("proxy");
+		String key = this.cache.key(request);
+		String cacheControl = request.getHeader(HttpHeaders.CACHE_CONTROL);
+		boolean credentials = this.cache.hasCredentials(request);
+		CachedResponse cached = cacheControl != null && cacheControl.contains("no-cache") ? null : this.cache.getFresh(key);
+		if (cached != null && (!credentials || cached.sharedWithCredentials)) {
+			this.cache.count(route, "hit");
+			serve(ctx, route, cached);
+			return null;
+		}
+		if (credentials) {
+			// not collapsed onto someone else's call; the response is stored only if it says it may be
+			this.cache.count(route, "credentials");
+			ctx.set(ZuulResponseCache.LEADER_KEY, key);
+			return null;
+		}
+		CompletableFuture<CachedResponse> leader = new CompletableFuture<>();
+		CompletableFuture<CachedResponse> inFlight = this.cache.joinOrLead(key, leader);
+		if (inFlight == leader) {
+			this.cache.count(route, "miss");
+			ctx.set(ZuulResponseCache.LEADER_KEY, key);
+			ctx.set(ZuulResponseCache.LEADER_FUTURE_KEY, leader);
+			return null;
+		}
+		this.cache.count(route, "collapsed");
+		CachedResponse shared = this.cache.await(key, inFlight);
+		if (shared != null) {
+			serve(ctx, route, shared);
+		}
+		return null;
+	}
+
+	private void serve(RequestContext ctx, String route, CachedResponse response) {
+		ctx.setSendZuulResponse(false);
+		if (response.matches(ctx.getRequest().getHeader(HttpHeaders.IF_NONE_MATCH))) {
+			this.cache.count(route, "not-modified");
+			ctx.setResponseStatusCode(HttpStatus.NOT_MODIFIED.value());
+			ctx.addZuulResponseHeader(HttpHeaders.ETAG, response.etag);
+			return;
+		}
+		ctx.setResponseStatusCode(HttpStatus.OK.value());
+		for (Pair<String, String> header : response.headers) {
+			ctx.addZuulResponseHeader(header.first(), header.second());
+		}
+		ctx.setResponseDataStream(new ByteArrayInputStream(response.body));
+	}
+}
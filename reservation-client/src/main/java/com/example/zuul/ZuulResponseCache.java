@@ -0,0 +1,316 @@
+package com.example.zuul;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import com.netflix.util.Pair;
+
+/**
+ * State shared by {@link ResponseCachePreFilter} and {@link ResponseCachePostFilter}: the cached GET
+ * responses per route, bounded in count and in body bytes and least recently used first out, and the
+ * upstream calls in flight that identical GETs wait for instead of going upstream themselves.
+ *
+ * As a shared cache it follows RFC 7234 §3.2: requests with credentials (Authorization, or a Cookie
+ * that may carry a session) are never collapsed and only get stored responses marked public,
+ * s-maxage or must-revalidate; their own responses are stored only if so marked. Responses that
+ * Vary on anything but Accept, which is part of the key, are not shared at all.
+ *
+ * Counters: gateway.zuul.&lt;route&gt;.cache.hit, .miss, .collapsed, .not-modified, .credentials
+ */
+@Component
+public class ZuulResponseCache {
+
+	/**
+	 * RequestContext key of the cache key, set on the request that goes upstream
+	 */
+	static final String LEADER_KEY = "responseCacheKey";
+
+	/**
+	 * RequestContext key of the future the requests collapsed onto the one going upstream wait for
+	 */
+	static final String LEADER_FUTURE_KEY = "responseCacheLeader";
+
+	private final CounterService counterService;
+
+	private final Set<String> routes;
+
+	private final long defaultTtlMs;
+
+	private final long collapseTimeoutMs;
+
+	private final int maxBodyBytes;
+
+	private final int maxEntries;
+
+	private final long maxBytes;
+
+	/**
+	 * access ordered; guards itself and {@link #cachedBytes}
+	 */
+	private final Map<String, CachedResponse> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long cachedBytes;
+
+	private final ConcurrentMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+	@Autowired
+	ZuulResponseCache(CounterService counterService,
+			@Value("${gateway.zuul.cache.routes:}") String routes,
+			@Value("${gateway.zuul.cache.ttl-ms:1000}") long defaultTtlMs,
+			@Value("${gateway.zuul.cache.collapse-timeout-ms:2000}") long collapseTimeoutMs,
+			@Value("${gateway.zuul.cache.max-body-bytes:1048576}") int maxBodyBytes,
+			@Value("${gateway.zuul.cache.max-entries:1000}") int maxEntries,
+			@Value("${gateway.zuul.cache.max-bytes:67108864}") long maxBytes) {
+		this.counterService = counterService;
+		this.routes = routes.isEmpty() ? Collections.emptySet()
+				: new HashSet<>(Arrays.asList(StringUtils.commaDelimitedListToStringArray(routes)));
+		this.defaultTtlMs = defaultTtlMs;
+		this.collapseTimeoutMs = collapseTimeoutMs;
+		this.maxBodyBytes = maxBodyBytes;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * @param route zuul route id
+	 * @return true if GETs on the route are cached, all routes when gateway.zuul.cache.routes is empty
+	 */
+	boolean isCached(String route) {
+		return route != null && (routes.isEmpty() || routes.contains(route));
+	}
+
+	/**
+	 * @return true if the response may depend on who is asking
+	 */
+	boolean hasCredentials(HttpServletRequest request) {
+		return request.getHeader(HttpHeaders.AUTHORIZATION) != null || request.getHeader(HttpHeaders.COOKIE) != null;
+	}
+
+	String key(HttpServletRequest request) {
+		String query = request.getQueryString();
+		return request.getRequestURI() + (query == null ? "" : "?" + query) + " " + request.getHeader(HttpHeaders.ACCEPT);
+	}
+
+	/**
+	 * @return the entry if it has not expired, else null
+	 */
+	CachedResponse getFresh(String key) {
+		synchronized (entries) {
+			CachedResponse response = entries.get(key);
+			if (response != null && response.isExpired()) {
+				entries.remove(key);
+				cachedBytes -= response.body.length;
+				return null;
+			}
+			return response;
+		}
+	}
+
+	/**
+	 * evicts least recently used entries beyond gateway.zuul.cache.max-entries or
+	 * gateway.zuul.cache.max-bytes of bodies in total
+	 */
+	void put(String key, CachedResponse response) {
+		if (response.body.length > maxBytes) {
+			return;
+		}
+		synchronized (entries) {
+			CachedResponse replaced = entries.put(key, response);
+			cachedBytes += response.body.length - (replaced == null ? 0 : replaced.body.length);
+			Iterator<CachedResponse> eldest = entries.values().iterator();
+			while (entries.size() > maxEntries || cachedBytes > maxBytes) {
+				cachedBytes -= eldest.next().body.length;
+				eldest.remove();
+			}
+		}
+	}
+
+	/**
+	 * @param leader completed by the caller once its upstream call is done
+	 * @return leader if the caller should go upstream, else the call in flight to wait for
+	 */
+	CompletableFuture<CachedResponse> joinOrLead(String key, CompletableFuture<CachedResponse> leader) {
+		CompletableFuture<CachedResponse> existing = inFlight.putIfAbsent(key, leader);
+		return existing == null ? leader : existing;
+	}
+
+	/**
+	 * @return the leader's response, null if it wasn't shareable or took longer than
+	 * gateway.zuul.cache.collapse-timeout-ms; the caller then goes upstream itself
+	 */
+	CachedResponse await(String key, CompletableFuture<CachedResponse> leader) {
+		try {
+			return leader.get(collapseTimeoutMs, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (TimeoutException e) {
+			// don't let a leader that never completes hold up later requests
+			inFlight.remove(key, leader);
+			return null;
+		} catch (ExecutionException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @param leader the caller's own future passed to {@link #joinOrLead}; if it timed out meanwhile
+	 * another request may lead for the key, whose call stays in flight
+	 * @param response null if the upstream response can't be shared
+	 */
+	void complete(String key, CompletableFuture<CachedResponse> leader, CachedResponse response) {
+		inFlight.remove(key, leader);
+		leader.complete(response);
+	}
+
+	int getMaxBodyBytes() {
+		return maxBodyBytes;
+	}
+
+	/**
+	 * @param cacheControl upstream Cache-Control, may be null
+	 * @return how long the response may be cached, 0 if it must not be
+	 */
+	long ttlMs(String cacheControl) {
+		if (cacheControl == null) {
+			return defaultTtlMs;
+		}
+		long ttlMs = defaultTtlMs;
+		for (String directive : StringUtils.commaDelimitedListToStringArray(cacheControl.toLowerCase())) {
+			directive = directive.trim();
+			if (directive.equals("no-store") || directive.equals("no-cache") || directive.equals("private")) {
+				return 0;
+			}
+			if (directive.startsWith("max-age=")) {
+				try {
+					ttlMs = TimeUnit.SECONDS.toMillis(Long.parseLong(directive.substring("max-age=".length())));
+				} catch (NumberFormatException ex) {
+					return 0;
+				}
+			}
+		}
+		return ttlMs;
+	}
+
+	/**
+	 * @param cacheControl upstream Cache-Control, may be null
+	 * @return true if the response may be stored for and served to requests with credentials
+	 */
+	static boolean isSharedWithCredentials(String cacheControl) {
+		if (cacheControl == null) {
+			return false;
+		}
+		for (String directive : StringUtils.commaDelimitedListToStringArray(cacheControl.toLowerCase())) {
+			directive = directive.trim();
+			if (directive.equals("public") || directive.equals("must-revalidate") || directive.startsWith("s-maxage=")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param cacheControl upstream Cache-Control, may be null
+	 * @return true if the response must not reach anyone but the caller
+	 */
+	static boolean isPrivate(String cacheControl) {
+		if (cacheControl == null) {
+			return false;
+		}
+		for (String directive : StringUtils.commaDelimitedListToStringArray(cacheControl.toLowerCase())) {
+			directive = directive.trim();
+			if (directive.equals("private") || directive.equals("no-store")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param vary upstream Vary, may be null
+	 * @return true if every header the response varies on is part of {@link #key}
+	 */
+	static boolean isKeyedOn(String vary) {
+		if (vary == null) {
+			return true;
+		}
+		for (String header : StringUtils.commaDelimitedListToStringArray(vary)) {
+			if (!header.trim().equalsIgnoreCase(HttpHeaders.ACCEPT)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	void count(String route, String event) {
+		this.counterService.increment("gateway.zuul." + route + ".cache." + event);
+	}
+
+	/**
+	 * a 200 response as the origin sent it, plus the ETag clients revalidate against
+	 */
+	static class CachedResponse {
+
+		final List<Pair<String, String>> headers;
+
+		final byte[] body;
+
+		final String etag;
+
+		final long expiresAt;
+
+		/**
+		 * may be served to requests with credentials
+		 */
+		final boolean sharedWithCredentials;
+
+		CachedResponse(List<Pair<String, String>> headers, byte[] body, String etag, long ttlMs, boolean sharedWithCredentials) {
+			this.headers = headers;
+			this.body = body;
+			this.etag = etag;
+			this.sharedWithCredentials = sharedWithCredentials;
+			this.expiresAt = System.currentTimeMillis() + ttlMs;
+		}
+
+		boolean isExpired() {
+			return System.currentTimeMillis() >= expiresAt;
+		}
+
+		/**
+		 * @param ifNoneMatch request header, may be null or a list of tags
+		 */
+		boolean matches(String ifNoneMatch) {
+			if (ifNoneMatch == null) {
+				return false;
+			}
+			for (String tag : StringUtils.commaDelimitedListToStringArray(ifNoneMatch)) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
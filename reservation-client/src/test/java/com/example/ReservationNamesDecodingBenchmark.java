@@ -0,0 +1,118 @@
+package com.example;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Bytes allocated and time per decoded /reservations response against collection size, for the
+ * Resources&lt;Reservation&gt; exchange getReservationNames used to do and for
+ * {@link ReservationNamesExtractor}. The "names" column is what the resulting list of names alone
+ * costs, anything above it is decoding overhead. Uses the per thread allocation counter of HotSpot;
+ * not part of the test suite, run the main method from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.example.ReservationNamesDecodingBenchmark -Dexec.classpathScope=test}.
+ */
+public class ReservationNamesDecodingBenchmark {
+
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	private static final int WARMUP_BYTES = 200 << 20;
+
+	private static final int MEASURE_BYTES = 400 << 20;
+
+	private static volatile Object sink;
+
+	public static void main(String[] args) throws IOException {
+		ObjectMapper halMapper = new ObjectMapper();
+		halMapper.registerModule(new Jackson2HalModule());
+		halMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		JavaType resourcesType = halMapper.getTypeFactory()
+				.constructType(new ParameterizedTypeReference<Resources<Reservation>>() {}.getType());
+		int[] sizes = { 10, 1_000, 10_000, 100_000 };
+		System.out.printf("%10s %14s %14s %14s %14s %14s%n",
+				"size", "names (B/op)", "object (B/op)", "stream (B/op)", "object (us/op)", "stream (us/op)");
+		for (int size : sizes) {
+			byte[] payload = halPayload(size);
+			int iterations = Math.max(10, MEASURE_BYTES / payload.length);
+			Decoder object = () -> {
+				Resources<Reservation> resources = halMapper.readValue(new ByteArrayInputStream(payload), resourcesType);
+				return resources.getContent().stream().map(Reservation::getReservationName).collect(Collectors.toList());
+			};
+			Decoder stream = () -> ReservationNamesExtractor.readNames(new ByteArrayInputStream(payload));
+			run(object, Math.max(10, WARMUP_BYTES / payload.length));
+			run(stream, Math.max(10, WARMUP_BYTES / payload.length));
+			long[] objectResult = run(object, iterations);
+			long[] streamResult = run(stream, iterations);
+			System.out.printf("%10d %14d %14d %14d %14.1f %14.1f%n", size, namesBytes(stream.decode()),
+					objectResult[0], streamResult[0], objectResult[1] / 1000.0, streamResult[1] / 1000.0);
+		}
+	}
+
+	/**
+	 * @return allocated bytes and nanoseconds per decode
+	 */
+	private static long[] run(Decoder decoder, int iterations) throws IOException {
+		long threadId = Thread.currentThread().getId();
+		long allocated = THREADS.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			sink = decoder.decode();
+		}
+		long nanos = System.nanoTime() - start;
+		return new long[] { (THREADS.getThreadAllocatedBytes(threadId) - allocated) / iterations, nanos / iterations };
+	}
+
+	/**
+	 * @return bytes a fresh copy of the decoded names takes, the floor for any decoder
+	 */
+	private static long namesBytes(Collection<String> decoded) {
+		long threadId = Thread.currentThread().getId();
+		long allocated = THREADS.getThreadAllocatedBytes(threadId);
+		List<String> copy = new ArrayList<>(decoded.size());
+		for (String name : decoded) {
+			copy.add(new String(name.toCharArray()));
+		}
+		sink = copy;
+		return THREADS.getThreadAllocatedBytes(threadId) - allocated;
+	}
+
+	/**
+	 * @return what spring data rest renders for GET /reservations
+	 */
+	private static byte[] halPayload(int size) {
+		StringBuilder json = new StringBuilder("{\"_embedded\":{\"reservations\":[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			json.append("{\"id\":").append(i)
+					.append(",\"reservationName\":\"Reservation").append(i).append('"')
+					.append(",\"_links\":{\"self\":{\"href\":\"http://localhost:8080/reservations/").append(i).append("\"}")
+					.append(",\"reservation\":{\"href\":\"http://localhost:8080/reservations/").append(i).append("\"}}}");
+		}
+		json.append("]},\"_links\":{\"self\":{\"href\":\"http://localhost:8080/reservations\"}")
+				.append(",\"profile\":{\"href\":\"http://localhost:8080/profile/reservations\"}")
+				.append(",\"search\":{\"href\":\"http://localhost:8080/reservations/search\"}}")
+				.append(",\"page\":{\"size\":").append(size).append(",\"totalElements\":").append(size)
+				.append(",\"totalPages\":1,\"number\":0}}");
+		return json.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private interface Decoder {
+
+		Collection<String> decode() throws IOException;
+	}
+}
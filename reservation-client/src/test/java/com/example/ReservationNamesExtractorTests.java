@@ -0,0 +1,76 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+
+public class ReservationNamesExtractorTests {
+
+	private static final String LINKS = "\"_links\":{\"self\":{\"href\":\"http://localhost/reservations\"},"
+			+ "\"profile\":{\"href\":\"http://localhost/profile/reservations\"}}";
+
+	private static final String PAGE = "\"page\":{\"size\":20,\"totalElements\":2,\"totalPages\":1,\"number\":0}";
+
+	private static final String EMBEDDED = "\"_embedded\":{\"reservations\":["
+			+ "{\"reservationName\":\"Josh\",\"_links\":{\"self\":{\"href\":\"http://localhost/reservations/1\"}}},"
+			+ "{\"_links\":{\"self\":{\"href\":\"http://localhost/reservations/2\"}},\"reservationName\":\"Juergen\"}]}";
+
+	@Test
+	public void namesAfterLinksAndPage() throws IOException {
+		assertEquals(Arrays.asList("Josh", "Juergen"), read("{" + LINKS + "," + PAGE + "," + EMBEDDED + "}"));
+	}
+
+	@Test
+	public void namesBeforeLinksAndPage() throws IOException {
+		assertEquals(Arrays.asList("Josh", "Juergen"), read("{" + EMBEDDED + "," + LINKS + "," + PAGE + "}"));
+	}
+
+	@Test
+	public void missingEmbeddedIsEmpty() throws IOException {
+		// spring data rest leaves _embedded out of an empty collection
+		assertTrue(read("{" + LINKS + "," + PAGE + "}").isEmpty());
+	}
+
+	@Test
+	public void missingReservationsIsEmpty() throws IOException {
+		assertTrue(read("{\"_embedded\":{\"bookmarks\":[{\"reservationName\":\"not a reservation\"}]}," + LINKS + "}").isEmpty());
+	}
+
+	@Test
+	public void nullNameIsKept() throws IOException {
+		List<String> names = read("{\"_embedded\":{\"reservations\":[{\"reservationName\":null},{\"reservationName\":\"Josh\"}]}}");
+
+		assertEquals(Arrays.asList(null, "Josh"), names);
+	}
+
+	@Test
+	public void entriesWithoutNameAreSkipped() throws IOException {
+		List<String> names = read("{\"_embedded\":{\"reservations\":[{\"id\":1},\"unexpected\",{\"reservationName\":\"Josh\"}]}}");
+
+		assertEquals(Collections.singletonList("Josh"), names);
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void arrayBodyIsRejected() throws IOException {
+		read("[{\"reservationName\":\"Josh\"}]");
+	}
+
+	@Test(expected = JsonParseException.class)
+	public void emptyBodyIsRejected() throws IOException {
+		read("");
+	}
+
+	private static List<String> read(String json) throws IOException {
+		return ReservationNamesExtractor.readNames(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+	}
+}
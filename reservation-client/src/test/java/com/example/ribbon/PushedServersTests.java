@@ -0,0 +1,70 @@
+package com.example.ribbon;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.netflix.loadbalancer.Server;
+
+public class PushedServersTests {
+
+	private long now;
+
+	private final PushedServers pushedServers = new PushedServers(60000, () -> now);
+
+	@Test
+	public void registrationIsRoutableBeforeDiscoveryFetchesIt() {
+		Server known = server("a", "defaultZone");
+		pushedServers.registered("RESERVATION-SERVICE", "b:8080", "b", 8080, null);
+
+		List<Server> merged = pushedServers.merge("reservation-service", Collections.singletonList(known));
+
+		assertEquals(Arrays.asList("a:8080", "b:8080"), ids(merged));
+		assertEquals("defaultZone", merged.get(1).getZone());
+	}
+
+	@Test
+	public void cancellationIsDroppedBeforeDiscoveryForgetsIt() {
+		pushedServers.canceled("reservation-service", "b:8080");
+
+		List<Server> merged = pushedServers.merge("reservation-service", Arrays.asList(server("a", "z"), server("b", "z")));
+
+		assertEquals(Collections.singletonList("a:8080"), ids(merged));
+	}
+
+	@Test
+	public void discoveryTakesOverOnceItAgrees() {
+		pushedServers.registered("reservation-service", "b:8080", "b", 8080, "z");
+		pushedServers.merge("reservation-service", Arrays.asList(server("a", "z"), server("b", "z")));
+
+		// b left again without a push reaching us, discovery alone decides
+		List<Server> merged = pushedServers.merge("reservation-service", Collections.singletonList(server("a", "z")));
+
+		assertEquals(Collections.singletonList("a:8080"), ids(merged));
+	}
+
+	@Test
+	public void pushesExpire() {
+		pushedServers.registered("reservation-service", "b:8080", "b", 8080, "z");
+		now += 60000;
+
+		List<Server> merged = pushedServers.merge("reservation-service", Collections.singletonList(server("a", "z")));
+
+		assertEquals(Collections.singletonList("a:8080"), ids(merged));
+	}
+
+	private static Server server(String host, String zone) {
+		Server server = new Server(host, 8080);
+		server.setZone(zone);
+		return server;
+	}
+
+	private static List<String> ids(List<Server> servers) {
+		return servers.stream().map(Server::getId).collect(Collectors.toList());
+	}
+}
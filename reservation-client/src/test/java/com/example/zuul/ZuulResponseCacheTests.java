@@ -0,0 +1,75 @@
+package com.example.zuul;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collections;
+
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.zuul.ZuulResponseCache.CachedResponse;
+
+public class ZuulResponseCacheTests {
+
+	private final ZuulResponseCache cache = new ZuulResponseCache(mock(CounterService.class), "", 1000, 2000, 100, 10, 250);
+
+	@Test
+	public void credentialsMakeARequestPersonal() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/reservation-service/reservations");
+		assertFalse(cache.hasCredentials(request));
+
+		request.addHeader(HttpHeaders.AUTHORIZATION, "Basic dXNlcjpwYXNz");
+		assertTrue(cache.hasCredentials(request));
+
+		MockHttpServletRequest withCookie = new MockHttpServletRequest("GET", "/reservation-service/reservations");
+		withCookie.addHeader(HttpHeaders.COOKIE, "SESSION=1");
+		assertTrue(cache.hasCredentials(withCookie));
+	}
+
+	@Test
+	public void onlyExplicitlySharedResponsesServeCredentials() {
+		assertFalse(ZuulResponseCache.isSharedWithCredentials(null));
+		assertFalse(ZuulResponseCache.isSharedWithCredentials("max-age=60"));
+		assertTrue(ZuulResponseCache.isSharedWithCredentials("public, max-age=60"));
+		assertTrue(ZuulResponseCache.isSharedWithCredentials("s-maxage=60"));
+		assertTrue(ZuulResponseCache.isSharedWithCredentials("max-age=60, must-revalidate"));
+	}
+
+	@Test
+	public void privateResponsesAreNotShared() {
+		assertFalse(ZuulResponseCache.isPrivate(null));
+		assertFalse(ZuulResponseCache.isPrivate("max-age=60"));
+		assertTrue(ZuulResponseCache.isPrivate("private, max-age=60"));
+		assertTrue(ZuulResponseCache.isPrivate("no-store"));
+	}
+
+	@Test
+	public void varyIsOnlyHonouredForTheKeyedAccept() {
+		assertTrue(ZuulResponseCache.isKeyedOn(null));
+		assertTrue(ZuulResponseCache.isKeyedOn("accept"));
+		assertFalse(ZuulResponseCache.isKeyedOn("Accept, Accept-Language"));
+		assertFalse(ZuulResponseCache.isKeyedOn("*"));
+	}
+
+	@Test
+	public void leastRecentlyUsedBodiesAreEvictedBeyondMaxBytes() {
+		cache.put("a", response(100));
+		cache.put("b", response(100));
+		cache.getFresh("a");
+		cache.put("c", response(100));
+
+		assertNotNull(cache.getFresh("a"));
+		assertNull(cache.getFresh("b"));
+		assertNotNull(cache.getFresh("c"));
+	}
+
+	private static CachedResponse response(int bytes) {
+		return new CachedResponse(Collections.emptyList(), new byte[bytes], "\"etag\"", 60000, false);
+	}
+}
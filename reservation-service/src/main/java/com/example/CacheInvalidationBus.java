@@ -0,0 +1,217 @@
+package com.example;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+
+import com.example.bookmark.Account;
+import com.example.bookmark.AccountIdCache;
+
+/**
+ * Keeps the local caches of all reservation-service instances in step. Committed inserts, updates and
+ * deletes of cached entities are collected for {@code reservation.cache.invalidation.window-ms} and
+ * published as one message; every other instance then evicts those entities from its second-level
+ * cache, drops its cached query results and, for accounts, its {@link AccountIdCache} entries.
+ *
+ * Payload: one key per line, {@code entityName#id} for a changed row, {@code entityName} for new rows
+ * (query results only) and {@code entityName#*} once a window holds more than
+ * {@code reservation.cache.invalidation.max-keys} keys.
+ *
+ * Counters: cache.invalidation.published, cache.invalidation.received, cache.invalidation.keys
+ */
+@MessageEndpoint
+class CacheInvalidationBus implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener,
+		InitializingBean, DisposableBean {
+
+	static final String ORIGIN_HEADER = "cacheInvalidationOrigin";
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Logger log = LoggerFactory.getLogger(CacheInvalidationBus.class);
+
+	private static final String ACCOUNT = Account.class.getName();
+
+	private final String origin = UUID.randomUUID().toString();
+
+	private final Set<String> pending = new LinkedHashSet<>();
+
+	private final SessionFactoryImplementor sessionFactory;
+
+	private final CacheInvalidationChannels channels;
+
+	private final AccountIdCache accountIdCache;
+
+	private final CounterService counterService;
+
+	private final long windowMs;
+
+	private final int maxKeys;
+
+	private final ScheduledExecutorService publisher;
+
+	@Autowired
+	CacheInvalidationBus(EntityManagerFactory entityManagerFactory, CacheInvalidationChannels channels,
+			AccountIdCache accountIdCache, CounterService counterService,
+			@Value("${reservation.cache.invalidation.window-ms:100}") long windowMs,
+			@Value("${reservation.cache.invalidation.max-keys:500}") int maxKeys) {
+		this.sessionFactory = (SessionFactoryImplementor)
+				((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+		this.channels = channels;
+		this.accountIdCache = accountIdCache;
+		this.counterService = counterService;
+		this.windowMs = windowMs;
+		this.maxKeys = maxKeys;
+		this.publisher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "cache-invalidation-publisher");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * listens after commit, rolled back changes are never published
+	 */
+	@Override
+	public void afterPropertiesSet() {
+		EventListenerRegistry registry = this.sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+		registry.appendListeners(EventType.POST_COMMIT_INSERT, this);
+		registry.appendListeners(EventType.POST_COMMIT_UPDATE, this);
+		registry.appendListeners(EventType.POST_COMMIT_DELETE, this);
+	}
+
+	/**
+	 * for writes hibernate doesn't see, e.g. JDBC batch inserts
+	 * @param entityName
+	 */
+	public void invalidateQueries(String entityName) {
+		record(entityName);
+	}
+
+	@Override
+	public void onPostInsert(PostInsertEvent event) {
+		record(event.getPersister().getEntityName());
+	}
+
+	@Override
+	public void onPostUpdate(PostUpdateEvent event) {
+		record(event.getPersister().getEntityName() + "#" + event.getId());
+	}
+
+	@Override
+	public void onPostDelete(PostDeleteEvent event) {
+		record(event.getPersister().getEntityName() + "#" + event.getId());
+	}
+
+	@Override
+	public boolean requiresPostCommitHanding(EntityPersister persister) {
+		return persister.hasCache();
+	}
+
+	private void record(String key) {
+		synchronized (pending) {
+			// the first change opens the window
+			if (pending.isEmpty()) {
+				this.publisher.schedule(this::publish, this.windowMs, TimeUnit.MILLISECONDS);
+			}
+			pending.add(key);
+		}
+	}
+
+	private void publish() {
+		Set<String> keys;
+		synchronized (pending) {
+			keys = new LinkedHashSet<>(pending);
+			pending.clear();
+		}
+		if (keys.size() > this.maxKeys) {
+			keys = collapse(keys);
+		}
+		try {
+			this.channels.invalidationOutput().send(MessageBuilder.withPayload(String.join("\n", keys))
+					.setHeader(ORIGIN_HEADER, this.origin).build());
+			this.counterService.increment("cache.invalidation.published");
+		} catch (RuntimeException ex) {
+			// the other instances fall back to the region ttl
+			log.error("Could not publish {} cache invalidations", keys.size(), ex);
+		}
+	}
+
+	private static Set<String> collapse(Collection<String> keys) {
+		Set<String> regions = new LinkedHashSet<>();
+		for (String key : keys) {
+			int hash = key.indexOf('#');
+			regions.add((hash < 0 ? key : key.substring(0, hash)) + "#*");
+		}
+		return regions;
+	}
+
+	/**
+	 * @param message published by any instance, including this one
+	 */
+	@ServiceActivator(inputChannel = CacheInvalidationChannels.INPUT)
+	public void receive(Message<String> message) {
+		if (this.origin.equals(message.getHeaders().get(ORIGIN_HEADER))) {
+			return;
+		}
+		this.counterService.increment("cache.invalidation.received");
+		Cache cache = this.sessionFactory.getCache();
+		for (String key : message.getPayload().split("\n")) {
+			int hash = key.indexOf('#');
+			if (hash < 0) {
+				continue;
+			}
+			String entityName = key.substring(0, hash);
+			String id = key.substring(hash + 1);
+			if ("*".equals(id)) {
+				cache.evictEntityRegion(entityName);
+				if (ACCOUNT.equals(entityName)) {
+					this.accountIdCache.evictAll();
+				}
+			} else {
+				cache.evictEntity(entityName, Long.valueOf(id));
+				if (ACCOUNT.equals(entityName)) {
+					this.accountIdCache.evictAccountId(Long.valueOf(id));
+				}
+			}
+			this.counterService.increment("cache.invalidation.keys");
+		}
+		// every key means some table changed, which is all the query cache tracks
+		cache.evictDefaultQueryRegion();
+		cache.evictQueryRegions();
+	}
+
+	@Override
+	public void destroy() {
+		this.publisher.shutdown();
+	}
+}
@@ -0,0 +1,23 @@
+package com.example;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.cloud.stream.annotation.Output;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Bindings of {@link CacheInvalidationBus}. Both point at the same destination and the input has no
+ * consumer group, so every instance receives every invalidation.
+ */
+public interface CacheInvalidationChannels {
+
+	String OUTPUT = "cacheInvalidationOutput";
+
+	String INPUT = "cacheInvalidationInput";
+
+	@Output(OUTPUT)
+	MessageChannel invalidationOutput();
+
+	@Input(INPUT)
+	SubscribableChannel invalidationInput();
+}
@@ -0,0 +1,181 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Properties of one {application}/{profile}/{label} that changed between two repository revisions,
+ * as JSON on the config-deltas destination. The JSON fields must stay in sync with the copy in
+ * config-server, which builds them. {@link #getChanged()} is applied in a property source ahead of
+ * everything the config server served at bootstrap; removed keys can't be masked that way and
+ * changed {cipher} values arrive only by name, both need a full refresh.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+final class ConfigDelta {
+
+	/**
+	 * property source the changed values are applied to
+	 */
+	static final String PROPERTY_SOURCE_NAME = "configDelta";
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private String application;
+
+	private String profile;
+
+	private String label;
+
+	private String fromRevision;
+
+	private String toRevision;
+
+	private long publishedAt;
+
+	private Map<String, String> changed = new LinkedHashMap<>();
+
+	private List<String> removed = new ArrayList<>();
+
+	private List<String> encrypted = new ArrayList<>();
+
+	boolean isEmpty() {
+		return changed.isEmpty() && removed.isEmpty() && encrypted.isEmpty();
+	}
+
+	/**
+	 * @return true if the delta alone can't bring the environment up to date
+	 */
+	boolean needsFullRefresh() {
+		return !removed.isEmpty() || !encrypted.isEmpty();
+	}
+
+	/**
+	 * @param profiles active profiles of the client, empty for the default profile
+	 */
+	boolean appliesTo(String application, String[] profiles) {
+		String active = profiles.length == 0 ? "default" : String.join(",", profiles);
+		return Objects.equals(this.application, application) && Objects.equals(this.profile, active);
+	}
+
+	/**
+	 * @return keys whose value in the environment actually changed
+	 */
+	Set<String> applyTo(ConfigurableEnvironment environment) {
+		MutablePropertySources sources = environment.getPropertySources();
+		MapPropertySource deltas = (MapPropertySource) sources.get(PROPERTY_SOURCE_NAME);
+		if (deltas == null) {
+			deltas = new MapPropertySource(PROPERTY_SOURCE_NAME, new LinkedHashMap<>());
+			sources.addFirst(deltas);
+		}
+		Set<String> keys = new LinkedHashSet<>();
+		for (Map.Entry<String, String> property : changed.entrySet()) {
+			if (!property.getValue().equals(environment.getProperty(property.getKey()))) {
+				deltas.getSource().put(property.getKey(), property.getValue());
+				keys.add(property.getKey());
+			}
+		}
+		return keys;
+	}
+
+	String toJson() {
+		try {
+			return JSON.writeValueAsString(this);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * @param payload JSON as String or UTF-8 bytes
+	 */
+	static ConfigDelta fromJson(Object payload) throws IOException {
+		String json = payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) : payload.toString();
+		return JSON.readValue(json, ConfigDelta.class);
+	}
+
+	public String getApplication() {
+		return application;
+	}
+
+	public void setApplication(String application) {
+		this.application = application;
+	}
+
+	public String getProfile() {
+		return profile;
+	}
+
+	public void setProfile(String profile) {
+		this.profile = profile;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	public String getFromRevision() {
+		return fromRevision;
+	}
+
+	public void setFromRevision(String fromRevision) {
+		this.fromRevision = fromRevision;
+	}
+
+	public String getToRevision() {
+		return toRevision;
+	}
+
+	public void setToRevision(String toRevision) {
+		this.toRevision = toRevision;
+	}
+
+	public long getPublishedAt() {
+		return publishedAt;
+	}
+
+	public void setPublishedAt(long publishedAt) {
+		this.publishedAt = publishedAt;
+	}
+
+	public Map<String, String> getChanged() {
+		return changed;
+	}
+
+	public void setChanged(Map<String, String> changed) {
+		this.changed = changed;
+	}
+
+	public List<String> getRemoved() {
+		return removed;
+	}
+
+	public void setRemoved(List<String> removed) {
+		this.removed = removed;
+	}
+
+	public List<String> getEncrypted() {
+		return encrypted;
+	}
+
+	public void setEncrypted(List<String> encrypted) {
+		this.encrypted = encrypted;
+	}
+}
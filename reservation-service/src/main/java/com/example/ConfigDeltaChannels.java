@@ -0,0 +1,15 @@
+package com.example;
+
+import org.springframework.cloud.stream.annotation.Input;
+import org.springframework.messaging.SubscribableChannel;
+
+/**
+ * Binding of {@link ConfigDeltaListener}. No consumer group, every instance applies every delta.
+ */
+public interface ConfigDeltaChannels {
+
+	String INPUT = "configDeltaInput";
+
+	@Input(INPUT)
+	SubscribableChannel deltaInput();
+}
@@ -0,0 +1,160 @@
+package com.example;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.endpoint.RefreshEndpoint;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.PropertySource;
+import org.springframework.integration.annotation.MessageEndpoint;
+import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+
+/**
+ * Applies the {@link ConfigDelta}s config-server pushes for this application and profile: only the
+ * changed keys are put into the environment and announced with an {@link EnvironmentChangeEvent},
+ * which {@link MessageSettingsHolder} and other listeners already react to. Removed or encrypted keys
+ * and a missed revision fall back to a full /refresh. Any other refresh, manual or over the bus, drops
+ * the applied deltas so they don't mask what it fetched, and announces the keys that uncovers.
+ *
+ * Counters: reservation.config.delta.applied, .ignored, .full-refresh, .cleared
+ * Gauge: reservation.config.delta.latency-ms (published by config-server to applied here)
+ */
+@MessageEndpoint
+class ConfigDeltaListener implements ApplicationListener<EnvironmentChangeEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(ConfigDeltaListener.class);
+
+	private final ConfigurableEnvironment environment;
+
+	private final ApplicationEventPublisher publisher;
+
+	private final CounterService counterService;
+
+	private final GaugeService gaugeService;
+
+	private final String application;
+
+	@Autowired(required = false)
+	private RefreshEndpoint refreshEndpoint;
+
+	private String revision;
+
+	/**
+	 * set on the thread announcing keys or refreshing for this listener, its own events must not clear the deltas
+	 */
+	private final ThreadLocal<Boolean> announcing = ThreadLocal.withInitial(() -> false);
+
+	@Autowired
+	ConfigDeltaListener(ConfigurableEnvironment environment, ApplicationEventPublisher publisher, CounterService counterService,
+			GaugeService gaugeService, @Value("${spring.application.name:reservation-service}") String application) {
+		this.environment = environment;
+		this.publisher = publisher;
+		this.counterService = counterService;
+		this.gaugeService = gaugeService;
+		this.application = application;
+		// revision served at bootstrap, if the config client exposes it
+		this.revision = environment.getProperty("config.client.version");
+	}
+
+	/**
+	 * environment changes happen under this listener's lock, events and refreshes go out after it:
+	 * ContextRefresher holds its own lock while it notifies {@link #onApplicationEvent}
+	 */
+	@ServiceActivator(inputChannel = ConfigDeltaChannels.INPUT)
+	public void receive(Message<?> message) throws IOException {
+		ConfigDelta delta = ConfigDelta.fromJson(message.getPayload());
+		if (!delta.appliesTo(application, environment.getActiveProfiles())) {
+			counterService.increment("reservation.config.delta.ignored");
+			return;
+		}
+		boolean fullRefresh;
+		Set<String> keys = null;
+		synchronized (this) {
+			fullRefresh = delta.needsFullRefresh() || (revision != null && !revision.equals(delta.getFromRevision()));
+			if (fullRefresh && refreshEndpoint != null) {
+				// the full environment from config server supersedes every delta applied so far
+				environment.getPropertySources().remove(ConfigDelta.PROPERTY_SOURCE_NAME);
+			} else if (!fullRefresh) {
+				keys = delta.applyTo(environment);
+			}
+			revision = delta.getToRevision();
+		}
+		if (fullRefresh) {
+			fullRefresh(delta);
+		} else {
+			announce(keys);
+			counterService.increment("reservation.config.delta.applied");
+			log.info("Applied config keys {} of revision {}", keys, delta.getToRevision());
+		}
+		gaugeService.submit("reservation.config.delta.latency-ms", System.currentTimeMillis() - delta.getPublishedAt());
+	}
+
+	/**
+	 * a refresh this listener didn't start fetched the whole environment, applied deltas would mask it
+	 */
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		if (announcing.get()) {
+			return;
+		}
+		Set<String> uncovered = new LinkedHashSet<>();
+		synchronized (this) {
+			PropertySource<?> deltas = environment.getPropertySources().remove(ConfigDelta.PROPERTY_SOURCE_NAME);
+			// the refresh knows which revision it fetched
+			revision = environment.getProperty("config.client.version");
+			if (deltas == null) {
+				return;
+			}
+			for (String key : ((MapPropertySource) deltas).getPropertyNames()) {
+				if (!Objects.equals(deltas.getProperty(key), environment.getProperty(key))) {
+					uncovered.add(key);
+				}
+			}
+		}
+		counterService.increment("reservation.config.delta.cleared");
+		// the refresh compared against the masked values and missed these
+		announce(uncovered);
+	}
+
+	private void announce(Set<String> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		announcing.set(true);
+		try {
+			publisher.publishEvent(new EnvironmentChangeEvent(keys));
+		} finally {
+			announcing.set(false);
+		}
+	}
+
+	private void fullRefresh(ConfigDelta delta) {
+		if (refreshEndpoint == null) {
+			log.warn("Can't apply config revision {} as a delta and no refresh endpoint is available", delta.getToRevision());
+			return;
+		}
+		counterService.increment("reservation.config.delta.full-refresh");
+		String[] keys;
+		announcing.set(true);
+		try {
+			keys = refreshEndpoint.refresh();
+		} finally {
+			announcing.set(false);
+		}
+		log.info("Refreshed config keys {} for revision {}", Arrays.toString(keys), delta.getToRevision());
+	}
+}
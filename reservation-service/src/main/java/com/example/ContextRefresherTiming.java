@@ -0,0 +1,55 @@
+package com.example;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.cloud.context.refresh.ContextRefresher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every {@link ContextRefresher#refresh()}, whether from /refresh, the bus or
+ * {@link ConfigDeltaListener}, for {@link MessageSettingsHolder}: the refresh fetches the environment
+ * from config server and rebinds before the EnvironmentChangeEvent the holder listens to is published,
+ * so the holder alone would only see the end of it. The holder is looked up per refresh, a
+ * post-processor depending on it would initialize it before the context is ready.
+ */
+@Component
+class ContextRefresherTiming implements BeanPostProcessor, BeanFactoryAware {
+
+	private BeanFactory beanFactory;
+
+	@Override
+	public void setBeanFactory(BeanFactory beanFactory) {
+		this.beanFactory = beanFactory;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		if (!(bean instanceof ContextRefresher)) {
+			return bean;
+		}
+		ProxyFactory proxy = new ProxyFactory(bean);
+		proxy.setProxyTargetClass(true);
+		proxy.addAdvice((MethodInterceptor) invocation -> {
+			if (!invocation.getMethod().getName().equals("refresh")) {
+				return invocation.proceed();
+			}
+			MessageSettingsHolder holder = beanFactory.getBean(MessageSettingsHolder.class);
+			holder.refreshStarted();
+			try {
+				return invocation.proceed();
+			} finally {
+				holder.refreshFinished();
+			}
+		});
+		return proxy.getProxy();
+	}
+}
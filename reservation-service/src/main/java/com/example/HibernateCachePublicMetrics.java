@@ -0,0 +1,88 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+
+/**
+ * Exports the hibernate second-level and query cache through /metrics, named like boot's own cache
+ * metrics: cache.&lt;region&gt;.size, .hit.ratio, .miss.ratio and .evictions, where region is the short
+ * entity name or StandardQueryCache. Ratios are since startup.
+ */
+@Component
+class HibernateCachePublicMetrics implements PublicMetrics {
+
+	private static final String QUERY_REGION = "org.hibernate.cache.internal.StandardQueryCache";
+
+	private final Statistics statistics;
+
+	@Autowired
+	HibernateCachePublicMetrics(EntityManagerFactory entityManagerFactory) {
+		this.statistics = ((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory().getStatistics();
+		this.statistics.setStatisticsEnabled(true);
+	}
+
+	@Override
+	public Collection<Metric<?>> metrics() {
+		List<Metric<?>> metrics = new ArrayList<>();
+		long querySize = 0;
+		for (String region : this.statistics.getSecondLevelCacheRegionNames()) {
+			SecondLevelCacheStatistics stats = this.statistics.getSecondLevelCacheStatistics(region);
+			if (stats == null) {
+				continue;
+			}
+			if (QUERY_REGION.equals(region)) {
+				// hits and misses of query results are only counted on the statistics object
+				querySize = stats.getElementCountInMemory();
+			} else {
+				addRegion(metrics, region, stats.getElementCountInMemory(), stats.getHitCount(), stats.getMissCount());
+			}
+		}
+		// no regions at all while the second-level cache is switched off
+		if (!metrics.isEmpty()) {
+			addRegion(metrics, QUERY_REGION, querySize,
+					this.statistics.getQueryCacheHitCount(), this.statistics.getQueryCacheMissCount());
+		}
+		return metrics;
+	}
+
+	private void addRegion(List<Metric<?>> metrics, String region, long size, long hits, long misses) {
+		String prefix = "cache." + region.substring(region.lastIndexOf('.') + 1);
+		metrics.add(new Metric<>(prefix + ".size", size));
+		long total = hits + misses;
+		if (total > 0) {
+			metrics.add(new Metric<>(prefix + ".hit.ratio", (double) hits / total));
+			metrics.add(new Metric<>(prefix + ".miss.ratio", (double) misses / total));
+		}
+		Long evictions = evictions(region);
+		if (evictions != null) {
+			metrics.add(new Metric<>(prefix + ".evictions", evictions));
+		}
+	}
+
+	/**
+	 * looked up without creating a cache manager, null unless ehcache backs the region
+	 */
+	private Long evictions(String region) {
+		for (CacheManager cacheManager : CacheManager.ALL_CACHE_MANAGERS) {
+			Ehcache cache = cacheManager.getEhcache(region);
+			if (cache != null) {
+				return cache.getStatistics().getEvictionCount();
+			}
+		}
+		return null;
+	}
+}
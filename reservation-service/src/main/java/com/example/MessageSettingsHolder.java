@@ -0,0 +1,120 @@
+package com.example;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+/**
+ * Current config-server settings of {@link MessageRestController}, replacing its refresh scope. When
+ * /refresh reports a change to one of {@link MessageSettings#KEYS} the new snapshot is built on the
+ * refreshing thread and swapped in at once; requests keep reading the previous one meanwhile and
+ * never wait for a bean to be rebuilt. Changes to other keys leave the snapshot alone.
+ *
+ * Counters: reservation.config.refresh.applied, .skipped, .failed
+ * Gauges: reservation.config.refresh.duration-ms, reservation.config.refresh.requests-during (requests
+ * served with the previous settings meanwhile), both over the whole refresh from fetching the
+ * environment to the last listener, see {@link ContextRefresherTiming}
+ */
+@Component
+class MessageSettingsHolder implements ApplicationListener<EnvironmentChangeEvent> {
+
+	private static final Logger log = LoggerFactory.getLogger(MessageSettingsHolder.class);
+
+	private final Environment environment;
+
+	private final CounterService counterService;
+
+	private final GaugeService gaugeService;
+
+	private final AtomicReference<MessageSettings> current;
+
+	private final LongAdder readsDuringRefresh = new LongAdder();
+
+	private volatile boolean refreshing;
+
+	private volatile long refreshStartedNanos;
+
+	@Autowired
+	MessageSettingsHolder(Environment environment, CounterService counterService, GaugeService gaugeService) {
+		this.environment = environment;
+		this.counterService = counterService;
+		this.gaugeService = gaugeService;
+		this.current = new AtomicReference<>(MessageSettings.from(environment));
+	}
+
+	MessageSettings get() {
+		if (refreshing) {
+			readsDuringRefresh.increment();
+		}
+		return current.get();
+	}
+
+	@Override
+	public void onApplicationEvent(EnvironmentChangeEvent event) {
+		if (Collections.disjoint(event.getKeys(), MessageSettings.KEYS)) {
+			counterService.increment("reservation.config.refresh.skipped");
+			return;
+		}
+		try {
+			current.set(MessageSettings.from(environment));
+			counterService.increment("reservation.config.refresh.applied");
+		} catch (IllegalStateException ex) {
+			// keep serving the last good settings rather than failing requests
+			log.warn("Keeping previous message settings, refreshed ones are invalid", ex);
+			counterService.increment("reservation.config.refresh.failed");
+		}
+	}
+
+	/**
+	 * a refresh starts fetching the environment, requests from now on read settings it may replace
+	 */
+	void refreshStarted() {
+		readsDuringRefresh.reset();
+		refreshStartedNanos = System.nanoTime();
+		refreshing = true;
+	}
+
+	void refreshFinished() {
+		refreshing = false;
+		gaugeService.submit("reservation.config.refresh.duration-ms",
+				TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - refreshStartedNanos) / 1000.0);
+		gaugeService.submit("reservation.config.refresh.requests-during", readsDuringRefresh.sum());
+	}
+
+	/**
+	 * immutable snapshot, read once per request
+	 */
+	static final class MessageSettings {
+
+		static final Set<String> KEYS = Collections.singleton("message");
+
+		private final String message;
+
+		private MessageSettings(String message) {
+			this.message = message;
+		}
+
+		/**
+		 * @throws IllegalStateException if a required property is missing
+		 */
+		static MessageSettings from(Environment environment) {
+			return new MessageSettings(environment.getRequiredProperty("message"));
+		}
+
+		String getMessage() {
+			return message;
+		}
+	}
+}
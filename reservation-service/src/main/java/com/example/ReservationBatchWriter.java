@@ -0,0 +1,185 @@
+package com.example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Batching consumer mode for {@link MessageReservationReceiver}. Reservations are queued and written
+ * in micro-batches bounded by {@code reservation.ingest.batch-size} and {@code reservation.ingest.max-linger-ms},
+ * one transaction per batch. The queue is bounded, so a slow database blocks the stream consumer
+ * instead of growing the heap.
+ *
+ * Metrics: gauge.reservation.ingest.batch.size, timer.reservation.ingest.flush, gauge.reservation.ingest.queue.depth
+ */
+@Component
+class ReservationBatchWriter implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(ReservationBatchWriter.class);
+
+	private final ReservationRepository repo;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final GaugeService gaugeService;
+
+	private final CounterService counterService;
+
+	private final boolean enabled;
+
+	private final int batchSize;
+
+	private final long maxLingerMs;
+
+	private final BlockingQueue<Reservation> queue;
+
+	private volatile boolean running;
+
+	private Thread flusher;
+
+	@Autowired
+	ReservationBatchWriter(ReservationRepository repo, PlatformTransactionManager transactionManager,
+			GaugeService gaugeService, CounterService counterService,
+			@Value("${reservation.ingest.batching:false}") boolean enabled,
+			@Value("${reservation.ingest.batch-size:100}") int batchSize,
+			@Value("${reservation.ingest.max-linger-ms:50}") long maxLingerMs,
+			@Value("${reservation.ingest.queue-capacity:10000}") int queueCapacity) {
+		this.repo = repo;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.gaugeService = gaugeService;
+		this.counterService = counterService;
+		this.enabled = enabled;
+		this.batchSize = batchSize;
+		this.maxLingerMs = maxLingerMs;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+	}
+
+	/**
+	 * @return true if reservations should be handed to {@link #enqueue(Reservation)}
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Blocks while the queue is full; this is the backpressure towards the message channel.
+	 * @param reservation
+	 */
+	public void enqueue(Reservation reservation) {
+		try {
+			this.queue.put(reservation);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while queueing " + reservation, e);
+		}
+	}
+
+	private void drain() {
+		List<Reservation> batch = new ArrayList<>(batchSize);
+		while (running || !queue.isEmpty()) {
+			try {
+				Reservation first = queue.poll(maxLingerMs, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxLingerMs);
+				while (batch.size() < batchSize) {
+					queue.drainTo(batch, batchSize - batch.size());
+					long remaining = deadline - System.nanoTime();
+					if (batch.size() >= batchSize || remaining <= 0) {
+						break;
+					}
+					Reservation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+					if (next == null) {
+						break;
+					}
+					batch.add(next);
+				}
+				flush(batch);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void flush(List<Reservation> batch) {
+		long start = System.nanoTime();
+		try {
+			this.transactionTemplate.execute(status -> this.repo.save(batch));
+		} catch (RuntimeException ex) {
+			// one bad row must not take the rest of the batch with it
+			log.warn("Batch of {} reservations failed, retrying one by one", batch.size(), ex);
+			for (Reservation reservation : batch) {
+				try {
+					this.repo.save(reservation);
+				} catch (RuntimeException rowEx) {
+					this.counterService.increment("reservation.ingest.failed");
+					log.error("Could not save {}", reservation, rowEx);
+				}
+			}
+		}
+		this.gaugeService.submit("reservation.ingest.batch.size", batch.size());
+		this.gaugeService.submit("timer.reservation.ingest.flush", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		this.gaugeService.submit("reservation.ingest.queue.depth", queue.size());
+	}
+
+	@Override
+	public void start() {
+		this.running = true;
+		this.flusher = new Thread(this::drain, "reservation-batch-writer");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	@Override
+	public void stop() {
+		// the flusher exits once the queue is empty
+		this.running = false;
+		try {
+			this.flusher.join(TimeUnit.SECONDS.toMillis(30));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void stop(Runnable callback) {
+		stop();
+		callback.run();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	@Override
+	public boolean isAutoStartup() {
+		return enabled;
+	}
+
+	/**
+	 * started before and stopped after the stream bindings feeding it
+	 */
+	@Override
+	public int getPhase() {
+		return Integer.MIN_VALUE / 2;
+	}
+}
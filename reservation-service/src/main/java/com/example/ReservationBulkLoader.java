@@ -0,0 +1,232 @@
+package com.example;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Streams reservations from {@code reservation.seed.file} into the database with JDBC batch inserts.
+ * Files ending in .json, .jsonl or .ndjson are read as one JSON object per line, anything else as
+ * CSV; both carry reservationName and an optional correlationId. The file is read once, chunks of
+ * {@code reservation.seed.chunk-size} rows are inserted in parallel, each in its own transaction, and
+ * ids come from {@link SequenceBlockAllocator} instead of one sequence call per row. A failed chunk
+ * stops the load and fails startup, chunks already committed stay.
+ *
+ * Only active when the file property is set.
+ */
+@Component
+@ConditionalOnProperty("reservation.seed.file")
+class ReservationBulkLoader implements CommandLineRunner {
+
+	static final String SEQUENCE_NAME = "reservation_seq";
+
+	static final int SEQUENCE_INCREMENT = 50;
+
+	private static final Logger log = LoggerFactory.getLogger(ReservationBulkLoader.class);
+
+	private static final String INSERT = "insert into reservation (id, reservation_name, reservation_name_key, correlation_id) values (?, ?, ?, ?)";
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final String nextValueSql;
+
+	private final ThreadLocal<SequenceBlockAllocator> allocators;
+
+	private final Cache cache;
+
+	private final CacheInvalidationBus invalidationBus;
+
+	@Value("${reservation.seed.file}")
+	private String file;
+
+	@Value("${reservation.seed.chunk-size:10000}")
+	private int chunkSize;
+
+	@Value("${reservation.seed.jdbc-batch-size:1000}")
+	private int jdbcBatchSize;
+
+	@Value("${reservation.seed.threads:4}")
+	private int threads;
+
+	@Value("${reservation.seed.progress-every:100000}")
+	private long progressEvery;
+
+	@Autowired
+	ReservationBulkLoader(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			EntityManagerFactory entityManagerFactory, CacheInvalidationBus invalidationBus) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		SessionFactoryImplementor sessionFactory = (SessionFactoryImplementor)
+				((HibernateEntityManagerFactory) entityManagerFactory).getSessionFactory();
+		this.nextValueSql = sessionFactory.getDialect().getSequenceNextValString(SEQUENCE_NAME);
+		this.cache = sessionFactory.getCache();
+		this.invalidationBus = invalidationBus;
+		this.allocators = ThreadLocal.withInitial(
+				() -> new SequenceBlockAllocator(this.jdbcTemplate, this.nextValueSql, SEQUENCE_INCREMENT));
+	}
+
+	@Override
+	public void run(String... args) throws Exception {
+		Path path = Paths.get(this.file);
+		boolean json = path.getFileName().toString().matches(".*\\.(json|jsonl|ndjson)$");
+		ExecutorService workers = Executors.newFixedThreadPool(this.threads, r -> {
+			Thread thread = new Thread(r, "reservation-bulk-loader");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// bounds the chunks held in memory while the workers are busy
+		Semaphore inFlight = new Semaphore(this.threads * 2);
+		AtomicReference<Exception> failure = new AtomicReference<>();
+		AtomicLong loaded = new AtomicLong();
+		long start = System.nanoTime();
+		log.info("Loading reservations from {} with {} threads", path, this.threads);
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			List<Object[]> chunk = new ArrayList<>(this.chunkSize);
+			long lineNumber = 0;
+			String line;
+			while ((line = reader.readLine()) != null && failure.get() == null) {
+				lineNumber++;
+				Object[] row = json ? parseJson(line) : parseCsv(line, lineNumber);
+				if (row == null) {
+					continue;
+				}
+				chunk.add(row);
+				if (chunk.size() == this.chunkSize) {
+					submit(workers, inFlight, chunk, loaded, start, failure);
+					chunk = new ArrayList<>(this.chunkSize);
+				}
+			}
+			if (!chunk.isEmpty() && failure.get() == null) {
+				submit(workers, inFlight, chunk, loaded, start, failure);
+			}
+		} finally {
+			workers.shutdown();
+			workers.awaitTermination(1, TimeUnit.HOURS);
+			// hibernate doesn't see jdbc inserts, cached query results would miss the new rows
+			this.cache.evictDefaultQueryRegion();
+			this.cache.evictQueryRegions();
+			this.invalidationBus.invalidateQueries(Reservation.class.getName());
+		}
+		if (failure.get() != null) {
+			throw new IllegalStateException("Bulk load of " + path + " failed after " + loaded.get() + " rows", failure.get());
+		}
+		log.info("Loaded {} reservations from {} in {} ms", loaded.get(), path,
+				TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+	}
+
+	private void submit(ExecutorService workers, Semaphore inFlight, List<Object[]> chunk, AtomicLong loaded,
+			long start, AtomicReference<Exception> failure) throws InterruptedException {
+		inFlight.acquire();
+		workers.execute(() -> {
+			try {
+				insert(chunk);
+				long total = loaded.addAndGet(chunk.size());
+				if (total / this.progressEvery != (total - chunk.size()) / this.progressEvery) {
+					long elapsedMs = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+					log.info("Loaded {} reservations ({} rows/s)", total, total * 1000 / elapsedMs);
+				}
+			} catch (Exception ex) {
+				failure.compareAndSet(null, ex);
+			} finally {
+				inFlight.release();
+			}
+		});
+	}
+
+	private void insert(List<Object[]> chunk) {
+		SequenceBlockAllocator allocator = this.allocators.get();
+		for (Object[] row : chunk) {
+			row[0] = allocator.nextId();
+		}
+		this.transactionTemplate.execute(status -> this.jdbcTemplate.batchUpdate(INSERT, chunk, this.jdbcBatchSize, (ps, row) -> {
+			ps.setLong(1, (Long) row[0]);
+			ps.setString(2, (String) row[1]);
+			ps.setString(3, Reservation.normalizeName((String) row[1]));
+			ps.setString(4, (String) row[2]);
+		}));
+	}
+
+	/**
+	 * @return id placeholder, name, correlation id; null for blank lines
+	 */
+	private Object[] parseJson(String line) throws IOException {
+		if (line.trim().isEmpty()) {
+			return null;
+		}
+		JsonNode node = this.objectMapper.readTree(line);
+		return new Object[] { null, node.path("reservationName").asText(null), node.path("correlationId").asText(null) };
+	}
+
+	/**
+	 * reservationName[,correlationId] with optional double quotes; a reservationName header line is skipped
+	 * @return id placeholder, name, correlation id; null for blank or header lines
+	 */
+	private Object[] parseCsv(String line, long lineNumber) {
+		if (line.trim().isEmpty()) {
+			return null;
+		}
+		List<String> fields = new ArrayList<>(2);
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		if (lineNumber == 1 && "reservationName".equalsIgnoreCase(fields.get(0).trim())) {
+			return null;
+		}
+		String correlationId = fields.size() > 1 && !fields.get(1).isEmpty() ? fields.get(1) : null;
+		return new Object[] { null, fields.get(0), correlationId };
+	}
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact binary payload for the reservations channel, carrying many reservations per message.
+ * Must stay in sync with the copy in reservation-client.
+ *
+ * <pre>
+ * envelope: 0xFF 'R' version(1 byte) count(varint) record*
+ * record:   length(varint) createdAt(8 bytes) correlationId(string) reservationName(string)
+ * string:   varint of byte length + 1 (0 for null), UTF-8 bytes
+ * </pre>
+ *
+ * 0xFF never starts a UTF-8 string, so envelopes can't be mistaken for text/plain payloads. Fields may
+ * be appended to a record without changing the version, the record length lets older decoders skip
+ * them; the version only changes for layouts older decoders can't read, and those are rejected.
+ */
+final class ReservationEnvelope {
+
+	static final byte VERSION = 1;
+
+	private static final byte MAGIC_0 = (byte) 0xFF;
+
+	private static final byte MAGIC_1 = 'R';
+
+	private ReservationEnvelope() {
+	}
+
+	/**
+	 * @param payload raw message payload
+	 * @return true if payload starts with the envelope magic
+	 */
+	static boolean isEnvelope(byte[] payload) {
+		return payload.length >= 3 && payload[0] == MAGIC_0 && payload[1] == MAGIC_1;
+	}
+
+	static byte[] encode(List<Record> records) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + records.size() * 48);
+		ByteArrayOutputStream record = new ByteArrayOutputStream(64);
+		out.write(MAGIC_0);
+		out.write(MAGIC_1);
+		out.write(VERSION);
+		writeVarint(out, records.size());
+		for (Record r : records) {
+			record.reset();
+			writeLong(record, r.getCreatedAt());
+			writeString(record, r.getCorrelationId());
+			writeString(record, r.getReservationName());
+			byte[] body = record.toByteArray();
+			writeVarint(out, body.length);
+			out.write(body, 0, body.length);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @param payload an envelope, see {@link #isEnvelope(byte[])}
+	 * @return the records in publish order
+	 * @throws IllegalArgumentException for another version or a truncated or corrupt payload
+	 */
+	static List<Record> decode(byte[] payload) {
+		if (!isEnvelope(payload)) {
+			throw new IllegalArgumentException("Not a reservation envelope");
+		}
+		if (payload[2] != VERSION) {
+			throw new IllegalArgumentException("Unsupported reservation envelope version " + payload[2]);
+		}
+		ByteBuffer in = ByteBuffer.wrap(payload, 3, payload.length - 3);
+		try {
+			int count = readVarint(in);
+			// every record takes at least its length byte, don't let a corrupt count size the list
+			if (count < 0 || count > in.remaining()) {
+				throw new IllegalArgumentException("Reservation envelope claims " + count + " records in " + in.remaining() + " bytes");
+			}
+			if (count == 0) {
+				return Collections.emptyList();
+			}
+			List<Record> records = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				int length = readVarint(in);
+				int end = in.position() + length;
+				long createdAt = in.getLong();
+				String correlationId = readString(in);
+				String reservationName = readString(in);
+				in.position(end);
+				records.add(new Record(correlationId, reservationName, createdAt));
+			}
+			return records;
+		} catch (RuntimeException ex) {
+			throw new IllegalArgumentException("Corrupt reservation envelope", ex);
+		}
+	}
+
+	private static void writeLong(ByteArrayOutputStream out, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			out.write((int) (value >>> shift));
+		}
+	}
+
+	private static void writeString(ByteArrayOutputStream out, String value) {
+		if (value == null) {
+			writeVarint(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length + 1);
+		out.write(bytes, 0, bytes.length);
+	}
+
+	private static String readString(ByteBuffer in) {
+		int length = readVarint(in) - 1;
+		if (length < 0) {
+			return null;
+		}
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static int readVarint(ByteBuffer in) {
+		int value = 0;
+		for (int shift = 0; shift < 35; shift += 7) {
+			byte b = in.get();
+			value |= (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	/**
+	 * one reservation inside an envelope
+	 */
+	static final class Record {
+
+		private final String correlationId;
+
+		private final String reservationName;
+
+		private final long createdAt;
+
+		Record(String correlationId, String reservationName, long createdAt) {
+			this.correlationId = correlationId;
+			this.reservationName = reservationName;
+			this.createdAt = createdAt;
+		}
+
+		String getCorrelationId() {
+			return correlationId;
+		}
+
+		String getReservationName() {
+			return reservationName;
+		}
+
+		/**
+		 * @return epoch millis when the gateway accepted the reservation
+		 */
+		long getCreatedAt() {
+			return createdAt;
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package com.example;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Writes all reservations as a JSON array straight from a database cursor. Rows are detached as
+ * soon as they are written, so heap use does not grow with the table.
+ */
+@Component
+class ReservationJsonStreamWriter {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Autowired
+	private ReservationRepository repo;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/**
+	 * @param out closed when done
+	 * @throws IOException
+	 */
+	@Transactional(readOnly = true)
+	public void writeAll(OutputStream out) throws IOException {
+		try (Stream<Reservation> rows = this.repo.streamAllByOrderByIdAsc();
+				JsonGenerator json = this.objectMapper.getFactory().createGenerator(out)) {
+			json.writeStartArray();
+			Iterator<Reservation> it = rows.iterator();
+			while (it.hasNext()) {
+				Reservation reservation = it.next();
+				json.writeObject(reservation);
+				this.entityManager.detach(reservation);
+			}
+			json.writeEndArray();
+		}
+	}
+}
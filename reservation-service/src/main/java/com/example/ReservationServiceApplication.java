@@ -1,40 +1,69 @@
 package com.example;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.QueryHint;
+import javax.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cloud.client.discovery.EnableDiscoveryClient;
-import org.springframework.cloud.context.config.annotation.RefreshScope;
 import org.springframework.cloud.sleuth.sampler.AlwaysSampler;
 import org.springframework.cloud.stream.annotation.EnableBinding;
 import org.springframework.cloud.stream.messaging.Sink;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.data.rest.core.annotation.RepositoryRestResource;
 import org.springframework.data.rest.core.annotation.RestResource;
 import org.springframework.data.rest.core.config.RepositoryRestConfiguration;
 import org.springframework.data.rest.webmvc.config.RepositoryRestMvcConfiguration;
+import org.springframework.http.MediaType;
 import org.springframework.integration.annotation.MessageEndpoint;
 import org.springframework.integration.annotation.ServiceActivator;
+import org.springframework.messaging.Message;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.bookmark.Account;
 import com.example.bookmark.AccountRepository;
 import com.example.bookmark.Bookmark;
 import com.example.bookmark.BookmarkRepository;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /**
  * a service, registered to eureka server.
@@ -43,7 +72,7 @@ import com.example.bookmark.BookmarkRepository;
  */
 @EnableDiscoveryClient
 @SpringBootApplication
-@EnableBinding(Sink.class)//Added for stream to receive data using message channel
+@EnableBinding({ Sink.class, CacheInvalidationChannels.class, ConfigDeltaChannels.class })//Added for stream to receive data using message channel
 public class ReservationServiceApplication {
 	
 	/**
@@ -54,23 +83,35 @@ public class ReservationServiceApplication {
 	}
 	
 	/**
-	 * command line runner to initiate some data
+	 * command line runner to initiate some data, skipped with reservation.seed.enabled=false.
+	 * Large data sets go through {@link ReservationBulkLoader} instead.
 	 * @param rr
 	 * @return
 	 */
-	@Bean CommandLineRunner runner(ReservationRepository rr){
-		return args -> {
-			Arrays.asList("Vikash,Mintoo,Aakash,Hetal,Vidhi,Rajni".split(",")).forEach(x-> rr.save(new Reservation(x)));
-			rr.findAll().forEach(System.out::println);
-		};
+	@Bean
+	@ConditionalOnProperty(name = "reservation.seed.enabled", matchIfMissing = true)
+	CommandLineRunner runner(ReservationRepository rr){
+		return args -> rr.save(Arrays.asList("Vikash,Mintoo,Aakash,Hetal,Vidhi,Rajni".split(",")).stream()
+				.map(Reservation::new).collect(Collectors.toList()));
+	}
+	
+	/**
+	 * backfills the search column on databases created before it was added
+	 * @param rr
+	 * @return CommandLineRunner
+	 */
+	@Bean CommandLineRunner normalizeNameKeys(ReservationRepository rr){
+		return args -> rr.normalizeMissingNameKeys();
 	}
 	
 	/**
+	 * skipped with reservation.seed.enabled=false
 	 * @param accountRepository
 	 * @param bookmarkRepository
 	 * @return CommandLineRunner
 	 */
 	@Bean
+	@ConditionalOnProperty(name = "reservation.seed.enabled", matchIfMissing = true)
 	CommandLineRunner initBookmarkData(AccountRepository accountRepository,
 			BookmarkRepository bookmarkRepository) {
 		return (evt) -> Arrays.asList(
@@ -108,12 +149,51 @@ class MyCoolConfiguration extends RepositoryRestMvcConfiguration {
  */
 @MessageEndpoint
 class MessageReservationReceiver{
+	static final String CORRELATION_ID_HEADER = "reservationCorrelationId";
+	
+	private static final Logger log = LoggerFactory.getLogger(MessageReservationReceiver.class);
+	
 	@Autowired ReservationRepository repo;
 	
+	@Autowired ReservationBatchWriter batchWriter;
+	
+	/**
+	 * Payloads are either a {@link ReservationEnvelope} or a single reservation name from text/plain
+	 * producers, which send the correlation id as a header.
+	 * @param message
+	 */
 	@ServiceActivator(inputChannel = Sink.INPUT)
-	public void acceptReservation(String rn){
-		System.out.println("Received reservation name: "+rn);
-		this.repo.save(new Reservation(rn));
+	public void receive(Message<?> message){
+		Object payload = message.getPayload();
+		if (payload instanceof byte[] && ReservationEnvelope.isEnvelope((byte[]) payload)) {
+			List<ReservationEnvelope.Record> records = ReservationEnvelope.decode((byte[]) payload);
+			log.debug("Received envelope of {} reservations", records.size());
+			List<Reservation> reservations = new ArrayList<>(records.size());
+			for (ReservationEnvelope.Record record : records) {
+				reservations.add(new Reservation(record.getReservationName(), record.getCorrelationId()));
+			}
+			if (this.batchWriter.isEnabled()) {
+				reservations.forEach(this.batchWriter::enqueue);
+			} else {
+				this.repo.save(reservations);
+			}
+			return;
+		}
+		String rn = payload instanceof byte[] ? new String((byte[]) payload, StandardCharsets.UTF_8) : payload.toString();
+		acceptReservation(rn, message.getHeaders().get(CORRELATION_ID_HEADER, String.class));
+	}
+
+	/**
+	 * @param rn reservation name
+	 * @param correlationId set by the gateway so clients can ask whether the reservation is stored, absent for older producers
+	 */
+	public void acceptReservation(String rn, String correlationId){
+		log.debug("Received reservation name: {} ({})", rn, correlationId);
+		if (this.batchWriter.isEnabled()) {
+			this.batchWriter.enqueue(new Reservation(rn, correlationId));
+		} else {
+			this.repo.save(new Reservation(rn, correlationId));
+		}
 	}
 }
 
@@ -124,34 +204,102 @@ class MessageReservationReceiver{
  */
 @RepositoryRestResource
 interface ReservationRepository extends JpaRepository<Reservation, Long>{
+	@RestResource (path="by-correlation-id")
+	Reservation findByCorrelationId(@Param("correlationId") String correlationId);
+	
 	@RestResource (path="by-name")
+	@QueryHints(@QueryHint(name="org.hibernate.cacheable", value="true"))
+	@Query("select r from Reservation r where r.reservationNameKey = lower(:rn)")
 	Collection<Reservation> findByReservationNameIgnoreCase(@Param("rn") String rn);
+	
+	/**
+	 * batched exact lookups for the gateway's collapser, pass lower cased names as repeated keys
+	 */
+	@RestResource (path="by-names")
+	List<Reservation> findByReservationNameKeyIn(@Param("keys") Collection<String> keys);
+	
+	/**
+	 * typeahead lookup, served from the reservation_name_key index
+	 */
+	@RestResource (path="by-prefix")
+	@Query("select r from Reservation r where r.reservationNameKey like concat(lower(:prefix), '%') order by r.reservationNameKey")
+	List<Reservation> findByReservationNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+	
+	/**
+	 * fills reservation_name_key for rows written before the column existed
+	 * @return updated rows
+	 */
+	@RestResource (exported=false)
+	@Modifying
+	@Transactional
+	@Query("update Reservation r set r.reservationNameKey = lower(r.reservationName) where r.reservationNameKey is null and r.reservationName is not null")
+	int normalizeMissingNameKeys();
 
+	/**
+	 * not query cached: the cache holds only ids, so once the table outgrows the Reservation region a
+	 * hit turns into one select per row, and every insert invalidates it anyway. Large tables should
+	 * use the after or stream paths
+	 */
 	@RestResource (path="get-all")
 	List<Reservation> findAll();
+	
+	/**
+	 * keyset pagination, pass the last id of the previous page as cursor
+	 */
+	@RestResource (path="after")
+	List<Reservation> findByIdGreaterThanOrderByIdAsc(@Param("cursor") Long cursor, Pageable pageable);
+	
+	/**
+	 * cursor backed stream, must be consumed inside a transaction and closed
+	 */
+	@RestResource (exported=false)
+	@QueryHints(@QueryHint(name="org.hibernate.fetchSize", value="500"))
+	@Query("select r from Reservation r order by r.id")
+	Stream<Reservation> streamAllByOrderByIdAsc();
 }
 
 /**
- * to check refreshscope implementation. actuator in action + update in config if property is changed in config server
+ * to check config refresh. actuator in action + update in config if property is changed in config server,
+ * see {@link MessageSettingsHolder}
  * @author vikash.kaushik
  *
  */
-@RefreshScope
 @RestController
 class MessageRestController{
-	@Value("${message}") private String message;
+	@Autowired private MessageSettingsHolder messageSettings;
 	
 	@Autowired private ReservationRepository repo;
 	
+	@Autowired private ReservationJsonStreamWriter streamWriter;
+	
 	@RequestMapping("/message")
 	public String getMessage(){
-		return this.message;
+		return this.messageSettings.get().getMessage();
 	}
 	
 	@RequestMapping("/get_all")
 	public Collection<Reservation> getAllReservation(){
 		return repo.findAll();
 	}
+	
+	/**
+	 * @param after id of the last reservation already seen
+	 * @param size page size, capped at 1000
+	 * @return next page in id order
+	 */
+	@RequestMapping("/get_all/page")
+	public Collection<Reservation> getReservationPage(@RequestParam(defaultValue="0") long after,
+			@RequestParam(defaultValue="100") int size){
+		return repo.findByIdGreaterThanOrderByIdAsc(after, new PageRequest(0, Math.min(Math.max(size, 1), 1000)));
+	}
+	
+	/**
+	 * @return all reservations as a JSON array, written row by row
+	 */
+	@RequestMapping(value="/get_all/stream", produces=MediaType.APPLICATION_JSON_VALUE)
+	public StreamingResponseBody streamAllReservation(){
+		return streamWriter::writeAll;
+	}
 }
 
 
@@ -161,18 +309,57 @@ class MessageRestController{
  *
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(indexes = {
+		@Index(name = "idx_reservation_name_key", columnList = "reservation_name_key"),
+		@Index(name = "idx_reservation_correlation_id", columnList = "correlation_id") })
 class Reservation{
+	//pooled-lo, shared with the ids ReservationBulkLoader allocates
 	@Id
-	@GeneratedValue
+	@GeneratedValue(generator = ReservationBulkLoader.SEQUENCE_NAME)
+	@GenericGenerator(name = ReservationBulkLoader.SEQUENCE_NAME, strategy = "org.hibernate.id.enhanced.SequenceStyleGenerator", parameters = {
+			@Parameter(name = "sequence_name", value = ReservationBulkLoader.SEQUENCE_NAME),
+			@Parameter(name = "increment_size", value = "" + ReservationBulkLoader.SEQUENCE_INCREMENT),
+			@Parameter(name = "optimizer", value = "pooled-lo") })
 	private Long id;
 	
 	private String reservationName;
 	
+	//lower cased reservationName, indexed for case-insensitive and prefix lookups
+	@JsonIgnore
+	@Column(name = "reservation_name_key")
+	private String reservationNameKey;
+	
+	//id the gateway acknowledged the write with
+	@Column(name = "correlation_id")
+	private String correlationId;
+	
 	public Reservation() {
 	}
 	
 	public Reservation(String reservationName) {
-		this.reservationName = reservationName;
+		setReservationName(reservationName);
+	}
+	
+	public Reservation(String reservationName, String correlationId) {
+		setReservationName(reservationName);
+		this.correlationId = correlationId;
+	}
+	
+	/**
+	 * @param reservationName
+	 * @return the value stored in reservation_name_key
+	 */
+	static String normalizeName(String reservationName) {
+		return reservationName == null ? null : reservationName.toLowerCase(Locale.ROOT);
+	}
+	
+	//covers every write path: stream receiver, REST repository, seeders
+	@PrePersist
+	@PreUpdate
+	void updateReservationNameKey() {
+		this.reservationNameKey = normalizeName(this.reservationName);
 	}
 
 	/**
@@ -201,6 +388,21 @@ class Reservation{
 	 */
 	public void setReservationName(String reservationName) {
 		this.reservationName = reservationName;
+		this.reservationNameKey = normalizeName(reservationName);
+	}
+
+	/**
+	 * @return the correlationId
+	 */
+	public String getCorrelationId() {
+		return correlationId;
+	}
+
+	/**
+	 * @param correlationId the correlationId to set
+	 */
+	public void setCorrelationId(String correlationId) {
+		this.correlationId = correlationId;
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,69 @@
+package com.example;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the pooled-lo id sequences past the ids already in their tables. Rows written while ids came
+ * from hibernate_sequence would otherwise collide with the first blocks of a sequence that
+ * ddl-auto=update just created at 1. Runs once the entity manager factory has updated the schema,
+ * ahead of every CommandLineRunner and stream listener; a sequence already past max(id) is left alone.
+ */
+@Component
+class SequenceAligner implements InitializingBean {
+
+	private static final Logger log = LoggerFactory.getLogger(SequenceAligner.class);
+
+	/**
+	 * table and the sequence its ids come from
+	 */
+	static final String[][] SEQUENCES = {
+			{ "reservation", ReservationBulkLoader.SEQUENCE_NAME },
+			{ "account", "account_seq" },
+			{ "bookmark", "bookmark_seq" } };
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final Dialect dialect;
+
+	@Autowired
+	SequenceAligner(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+		this(jdbcTemplate, ((SessionFactoryImplementor) ((HibernateEntityManagerFactory) entityManagerFactory)
+				.getSessionFactory()).getDialect());
+	}
+
+	SequenceAligner(JdbcTemplate jdbcTemplate, Dialect dialect) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.dialect = dialect;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		for (String[] sequence : SEQUENCES) {
+			align(sequence[0], sequence[1]);
+		}
+	}
+
+	private void align(String table, String sequence) {
+		Long maxId = jdbcTemplate.queryForObject("select max(id) from " + table, Long.class);
+		if (maxId == null) {
+			return;
+		}
+		// costs one unused pooled-lo block, every id handed out so far is below the next value
+		long next = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequence), Long.class);
+		if (next > maxId) {
+			return;
+		}
+		jdbcTemplate.execute("alter sequence " + sequence + " restart with " + (maxId + 1));
+		log.info("Restarted {} at {}, {} already has ids up to {}", sequence, maxId + 1, table, maxId);
+	}
+}
@@ -0,0 +1,47 @@
+package com.example;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Hands out ids from a database sequence the same way hibernate's pooled-lo optimizer does: every
+ * sequence value v reserves the ids v to v + blockSize - 1. Rows written with plain JDBC and rows
+ * written through the entity manager therefore never collide, as long as both use the same
+ * sequence and increment.
+ *
+ * Not thread-safe, use one allocator per loading thread.
+ */
+class SequenceBlockAllocator {
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String nextValueSql;
+
+	private final int blockSize;
+
+	private long next;
+
+	private int remaining;
+
+	/**
+	 * @param jdbcTemplate
+	 * @param nextValueSql dialect specific select of the next sequence value
+	 * @param blockSize the sequence increment
+	 */
+	SequenceBlockAllocator(JdbcTemplate jdbcTemplate, String nextValueSql, int blockSize) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.nextValueSql = nextValueSql;
+		this.blockSize = blockSize;
+	}
+
+	/**
+	 * @return the next id, hitting the database once per block
+	 */
+	long nextId() {
+		if (remaining == 0) {
+			this.next = this.jdbcTemplate.queryForObject(this.nextValueSql, Long.class);
+			this.remaining = this.blockSize;
+		}
+		this.remaining--;
+		return this.next++;
+	}
+}
@@ -0,0 +1,102 @@
+package com.example.bookmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.HandleAfterSave;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.stereotype.Component;
+
+/**
+ * username to account id, so bookmark requests don't have to look the account up every time.
+ * Only existing accounts are cached. Entries expire after {@code bookmark.account-cache.ttl-ms}
+ * and are evicted when an account is changed through the REST repository or on another instance.
+ */
+@Component
+@RepositoryEventHandler(Account.class)
+public class AccountIdCache {
+
+	private final AccountRepository accountRepository;
+
+	private final long ttlMs;
+
+	private final Map<String, Entry> entries;
+
+	@Autowired
+	AccountIdCache(AccountRepository accountRepository,
+			@Value("${bookmark.account-cache.max-entries:10000}") int maxEntries,
+			@Value("${bookmark.account-cache.ttl-ms:60000}") long ttlMs) {
+		this.accountRepository = accountRepository;
+		this.ttlMs = ttlMs;
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * @param username
+	 * @return id of the account, empty if there is no such account
+	 */
+	public Optional<Long> resolve(String username) {
+		synchronized (entries) {
+			Entry entry = entries.get(username);
+			if (entry != null && System.currentTimeMillis() - entry.cachedAt < ttlMs) {
+				return Optional.of(entry.accountId);
+			}
+		}
+		Optional<Long> accountId = this.accountRepository.findIdByUsername(username);
+		accountId.ifPresent(id -> {
+			synchronized (entries) {
+				entries.put(username, new Entry(id));
+			}
+		});
+		return accountId;
+	}
+
+	public void evict(String username) {
+		synchronized (entries) {
+			entries.remove(username);
+		}
+	}
+
+	@HandleAfterSave
+	@HandleAfterDelete
+	public void onAccountChanged(Account account) {
+		evictAccountId(account.getId());
+	}
+
+	/**
+	 * @param accountId evicted under every username, the username itself may have changed
+	 */
+	public void evictAccountId(Long accountId) {
+		synchronized (entries) {
+			entries.values().removeIf(entry -> entry.accountId.equals(accountId));
+		}
+	}
+
+	public void evictAll() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	private static class Entry {
+
+		final Long accountId;
+
+		final long cachedAt = System.currentTimeMillis();
+
+		Entry(Long accountId) {
+			this.accountId = accountId;
+		}
+	}
+}
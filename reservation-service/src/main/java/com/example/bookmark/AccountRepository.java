@@ -1,9 +1,16 @@
 package com.example.bookmark;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.data.rest.core.annotation.RestResource;
 
 import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     Optional<Account> findByUsername(String username);
+
+    @RestResource(exported = false)
+    @Query("select a.id from Account a where a.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
 }
\ No newline at end of file
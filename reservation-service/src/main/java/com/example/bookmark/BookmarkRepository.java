@@ -1,9 +1,14 @@
 package com.example.bookmark;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import java.util.Collection;
 
+import javax.persistence.QueryHint;
+
 public interface BookmarkRepository extends JpaRepository<Bookmark, Long> {
-    Collection<Bookmark> findByAccountUsername(String username);
+    // query cache, invalidated by hibernate on every bookmark or account write
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    Collection<Bookmark> findByAccountUsernameOrderByIdAsc(String username);
 }
@@ -3,6 +3,7 @@ package com.example.bookmark;
 import java.util.Collection;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -22,37 +23,52 @@ public class BookmarkRestController {
 
 	private final AccountRepository accountRepository;
 	
+	private final AccountIdCache accountIdCache;
+	
 	@Autowired
-	public BookmarkRestController(BookmarkRepository br, AccountRepository ar) {
+	public BookmarkRestController(BookmarkRepository br, AccountRepository ar, AccountIdCache accountIdCache) {
 		this.bookmarkRepository=br;
 		this.accountRepository=ar;
+		this.accountIdCache=accountIdCache;
 	}
 	
+	@RequestMapping(method = RequestMethod.POST)
 	ResponseEntity<?> add(@PathVariable String userId, @RequestBody Bookmark input){
-		validateUserAccount(userId);
-		return 	this.accountRepository.findByUsername(userId).map(account -> {
-			Bookmark newBookmark = this.bookmarkRepository.save(new Bookmark(account, input.uri, input.description));
-			
-			HttpHeaders httpHeaders = new HttpHeaders();
-			httpHeaders.setLocation(ServletUriComponentsBuilder.fromCurrentRequest().path("{id}").buildAndExpand(newBookmark.getId()).toUri());
-			return new ResponseEntity<>(null, httpHeaders, HttpStatus.CREATED);
-		}).get();
+		Bookmark newBookmark;
+		try {
+			newBookmark = saveBookmark(resolveAccountId(userId), input);
+		} catch (DataIntegrityViolationException ex) {
+			// cached id of an account that was removed or re-created in the meantime
+			this.accountIdCache.evict(userId);
+			newBookmark = saveBookmark(resolveAccountId(userId), input);
+		}
+		
+		HttpHeaders httpHeaders = new HttpHeaders();
+		httpHeaders.setLocation(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(newBookmark.getId()).toUri());
+		return new ResponseEntity<>(null, httpHeaders, HttpStatus.CREATED);
 	}
 	
 	@RequestMapping(value = "/{bookmarkId}", method = RequestMethod.GET)
 	Bookmark readBookmark(@PathVariable String userId, @PathVariable Long bookmarkId) {
-		this.validateUserAccount(userId);
+		this.resolveAccountId(userId);
 		return this.bookmarkRepository.findOne(bookmarkId);
 	}
 	
 	@RequestMapping(method = RequestMethod.GET)
 	Collection<Bookmark> readBookmarks(@PathVariable String userId) {
-		this.validateUserAccount(userId);
-		return this.bookmarkRepository.findByAccountUsername(userId);
+		this.resolveAccountId(userId);
+		return this.bookmarkRepository.findByAccountUsernameOrderByIdAsc(userId);
+	}
+
+	/**
+	 * getOne only creates a reference, the insert is the only statement
+	 */
+	private Bookmark saveBookmark(Long accountId, Bookmark input) {
+		return this.bookmarkRepository.save(new Bookmark(this.accountRepository.getOne(accountId), input.uri, input.description));
 	}
 
-	private void validateUserAccount(String userId) {
-		this.accountRepository.findByUsername(userId).orElseThrow(()->new UserNotFoundException(userId));
+	private Long resolveAccountId(String userId) {
+		return this.accountIdCache.resolve(userId).orElseThrow(()->new UserNotFoundException(userId));
 	}
 }
 
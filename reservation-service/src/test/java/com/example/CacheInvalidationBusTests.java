@@ -0,0 +1,121 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cloud.stream.test.binder.MessageCollector;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+
+/**
+ * Three reservation-service instances on one database, each with its own second-level cache. The
+ * test binder collects what every instance publishes and a forwarding thread hands it to all
+ * instances, as the redis topic would.
+ */
+public class CacheInvalidationBusTests {
+
+	private final List<ConfigurableApplicationContext> instances = new ArrayList<>();
+
+	private Thread topic;
+
+	@Before
+	public void startInstances() {
+		String url = "jdbc:h2:mem:invalidation-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+		for (int i = 0; i < 3; i++) {
+			this.instances.add(new SpringApplicationBuilder(ReservationServiceApplication.class)
+					.web(false)
+					.run("--spring.datasource.url=" + url,
+							"--spring.jpa.hibernate.ddl-auto=update",
+							"--spring.cloud.config.enabled=false",
+							"--eureka.client.enabled=false",
+							"--spring.zipkin.enabled=false",
+							"--reservation.seed.enabled=false",
+							"--reservation.cache.invalidation.window-ms=20",
+							"--spring.jpa.properties.hibernate.cache.use_second_level_cache=true",
+							"--spring.jpa.properties.hibernate.cache.use_query_cache=true",
+							// one cache manager per instance, the singleton factory would share it
+							"--spring.jpa.properties.hibernate.cache.region.factory_class=org.hibernate.cache.ehcache.EhCacheRegionFactory",
+							"--spring.jpa.properties.javax.persistence.sharedCache.mode=ENABLE_SELECTIVE"));
+		}
+		List<BlockingQueue<Message<?>>> published = new ArrayList<>();
+		for (ConfigurableApplicationContext instance : this.instances) {
+			published.add(instance.getBean(MessageCollector.class)
+					.forChannel(instance.getBean(CacheInvalidationChannels.class).invalidationOutput()));
+		}
+		this.topic = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					for (BlockingQueue<Message<?>> queue : published) {
+						Message<?> message = queue.poll(5, TimeUnit.MILLISECONDS);
+						if (message != null) {
+							for (ConfigurableApplicationContext instance : this.instances) {
+								instance.getBean(CacheInvalidationChannels.class).invalidationInput().send(message);
+							}
+						}
+					}
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}, "invalidation-topic");
+		this.topic.setDaemon(true);
+		this.topic.start();
+	}
+
+	@After
+	public void stopInstances() throws InterruptedException {
+		this.topic.interrupt();
+		this.topic.join();
+		this.instances.forEach(ConfigurableApplicationContext::close);
+	}
+
+	@Test
+	public void updateOnOneInstanceEvictsTheOthers() throws Exception {
+		Reservation reservation = repo(0).save(new Reservation("Before"));
+		for (int i = 0; i < 3; i++) {
+			// loads the row into every local cache
+			assertEquals("Before", repo(i).findOne(reservation.getId()).getReservationName());
+		}
+
+		reservation.setReservationName("After");
+		repo(0).save(reservation);
+
+		awaitAll(repo -> "After".equals(repo.findOne(reservation.getId()).getReservationName()));
+	}
+
+	@Test
+	public void insertOnOneInstanceRefreshesCachedQueries() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			assertTrue(repo(i).findByReservationNameIgnoreCase("Late").isEmpty());
+		}
+
+		repo(1).save(new Reservation("Late"));
+
+		awaitAll(repo -> repo.findByReservationNameIgnoreCase("Late").size() == 1);
+	}
+
+	private ReservationRepository repo(int instance) {
+		return this.instances.get(instance).getBean(ReservationRepository.class);
+	}
+
+	private void awaitAll(Predicate<ReservationRepository> converged) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		for (int i = 0; i < 3; i++) {
+			while (!converged.test(repo(i))) {
+				assertTrue("instance " + i + " still serves stale data", System.currentTimeMillis() < deadline);
+				Thread.sleep(20);
+			}
+		}
+	}
+}
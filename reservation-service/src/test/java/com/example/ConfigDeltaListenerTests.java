@@ -0,0 +1,156 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.cloud.endpoint.RefreshEndpoint;
+import org.springframework.context.ApplicationEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The listener against a real environment, with its events going to {@link MessageSettingsHolder} as
+ * in the application. The refresh endpoint is a mock standing in for ContextRefresher: it swaps the
+ * config server's property source and announces the keys like a refresh does.
+ */
+public class ConfigDeltaListenerTests {
+
+	private static final ObjectMapper JSON = new ObjectMapper();
+
+	private final StandardEnvironment environment = new StandardEnvironment();
+
+	private final Map<String, Object> served = new LinkedHashMap<>();
+
+	private final CounterService counterService = mock(CounterService.class);
+
+	private final RefreshEndpoint refreshEndpoint = mock(RefreshEndpoint.class);
+
+	private MessageSettingsHolder holder;
+
+	private ConfigDeltaListener listener;
+
+	@Before
+	public void setUp() {
+		served.put("message", "one");
+		served.put("config.client.version", "r1");
+		environment.getPropertySources().addLast(new MapPropertySource("configService", served));
+		holder = new MessageSettingsHolder(environment, counterService, mock(GaugeService.class));
+		ApplicationEventPublisher publisher = new ApplicationEventPublisher() {
+
+			@Override
+			public void publishEvent(ApplicationEvent event) {
+				publishEvent((Object) event);
+			}
+
+			@Override
+			public void publishEvent(Object event) {
+				if (event instanceof EnvironmentChangeEvent) {
+					listener.onApplicationEvent((EnvironmentChangeEvent) event);
+					holder.onApplicationEvent((EnvironmentChangeEvent) event);
+				}
+			}
+		};
+		listener = new ConfigDeltaListener(environment, publisher, counterService, mock(GaugeService.class),
+				"reservation-service");
+		ReflectionTestUtils.setField(listener, "refreshEndpoint", refreshEndpoint);
+		when(refreshEndpoint.refresh()).then(invocation -> {
+			served.put("message", "fetched");
+			served.put("config.client.version", "r9");
+			publisher.publishEvent(new EnvironmentChangeEvent(Collections.singleton("message")));
+			return new String[] { "message" };
+		});
+	}
+
+	@Test
+	public void changedKeyIsAppliedAndAnnounced() throws Exception {
+		listener.receive(message(delta("r1", "r2")));
+
+		assertEquals("two", holder.get().getMessage());
+		verify(refreshEndpoint, never()).refresh();
+		verify(counterService).increment("reservation.config.delta.applied");
+	}
+
+	@Test
+	public void missedRevisionRefreshes() throws Exception {
+		listener.receive(message(delta("r5", "r6")));
+
+		assertEquals("fetched", holder.get().getMessage());
+		verify(refreshEndpoint).refresh();
+		verify(counterService).increment("reservation.config.delta.full-refresh");
+	}
+
+	@Test
+	public void removedKeyRefreshes() throws Exception {
+		ConfigDelta delta = delta("r1", "r2");
+		delta.setRemoved(Collections.singletonList("other"));
+
+		listener.receive(message(delta));
+
+		assertEquals("fetched", holder.get().getMessage());
+		verify(refreshEndpoint).refresh();
+	}
+
+	@Test
+	public void encryptedKeyRefreshesInsteadOfApplyingTheCipherText() throws Exception {
+		ConfigDelta delta = delta("r1", "r2");
+		delta.setChanged(Collections.emptyMap());
+		delta.setEncrypted(Collections.singletonList("message"));
+
+		listener.receive(message(delta));
+
+		assertEquals("fetched", holder.get().getMessage());
+		assertNull(environment.getPropertySources().get(ConfigDelta.PROPERTY_SOURCE_NAME));
+		verify(refreshEndpoint).refresh();
+	}
+
+	@Test
+	public void otherRefreshDropsAppliedDeltas() throws Exception {
+		listener.receive(message(delta("r1", "r2")));
+		// a manual or bus refresh fetched a revision where the message went back, the refresh saw no change
+		served.put("config.client.version", "r3");
+		listener.onApplicationEvent(new EnvironmentChangeEvent(Collections.singleton("config.client.version")));
+
+		assertNull(environment.getPropertySources().get(ConfigDelta.PROPERTY_SOURCE_NAME));
+		assertEquals("one", holder.get().getMessage());
+		verify(counterService).increment("reservation.config.delta.cleared");
+
+		// deltas continue from the revision the refresh fetched
+		listener.receive(message(delta("r3", "r4")));
+		assertEquals("two", holder.get().getMessage());
+		verify(refreshEndpoint, never()).refresh();
+	}
+
+	private static ConfigDelta delta(String fromRevision, String toRevision) {
+		ConfigDelta delta = new ConfigDelta();
+		delta.setApplication("reservation-service");
+		delta.setProfile("default");
+		delta.setFromRevision(fromRevision);
+		delta.setToRevision(toRevision);
+		delta.setPublishedAt(System.currentTimeMillis());
+		delta.setChanged(Collections.singletonMap("message", "two"));
+		return delta;
+	}
+
+	private static Message<String> message(ConfigDelta delta) throws Exception {
+		return MessageBuilder.withPayload(JSON.writeValueAsString(delta)).build();
+	}
+}
@@ -0,0 +1,79 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.metrics.CounterService;
+import org.springframework.boot.actuate.metrics.GaugeService;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.env.MockPropertySource;
+
+import com.example.MessageSettingsHolder.MessageSettings;
+
+public class MessageSettingsHolderTests {
+
+	private MockEnvironment environment;
+
+	private CounterService counterService;
+
+	private GaugeService gaugeService;
+
+	private MessageSettingsHolder holder;
+
+	@Before
+	public void setUp() {
+		environment = new MockEnvironment().withProperty("message", "hello");
+		counterService = mock(CounterService.class);
+		gaugeService = mock(GaugeService.class);
+		holder = new MessageSettingsHolder(environment, counterService, gaugeService);
+	}
+
+	@Test
+	public void changedMessageIsSwappedIn() {
+		environment.setProperty("message", "hello again");
+		holder.onApplicationEvent(new EnvironmentChangeEvent(Collections.singleton("message")));
+
+		assertEquals("hello again", holder.get().getMessage());
+		verify(counterService).increment("reservation.config.refresh.applied");
+	}
+
+	@Test
+	public void unrelatedChangeKeepsTheSnapshot() {
+		MessageSettings before = holder.get();
+		environment.setProperty("message", "not announced");
+		holder.onApplicationEvent(new EnvironmentChangeEvent(Collections.singleton("server.port")));
+
+		assertSame(before, holder.get());
+		verify(counterService).increment("reservation.config.refresh.skipped");
+	}
+
+	@Test
+	public void requestsAreCountedOverTheWholeRefresh() {
+		holder.refreshStarted();
+		// still fetching from config server
+		holder.get();
+		environment.setProperty("message", "hello again");
+		holder.onApplicationEvent(new EnvironmentChangeEvent(Collections.singleton("message")));
+		holder.get();
+		holder.refreshFinished();
+		holder.get();
+
+		verify(gaugeService).submit("reservation.config.refresh.requests-during", 2);
+	}
+
+	@Test
+	public void removedMessageKeepsTheLastGoodSnapshot() {
+		environment.getPropertySources().remove(MockPropertySource.MOCK_PROPERTIES_PROPERTY_SOURCE_NAME);
+		holder.onApplicationEvent(new EnvironmentChangeEvent(Collections.singleton("message")));
+
+		assertEquals("hello", holder.get().getMessage());
+		verify(counterService).increment("reservation.config.refresh.failed");
+	}
+}
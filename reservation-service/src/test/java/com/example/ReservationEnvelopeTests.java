@@ -0,0 +1,39 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ReservationEnvelopeTests {
+
+	@Test
+	public void roundTrip() {
+		byte[] payload = ReservationEnvelope.encode(Arrays.asList(
+				new ReservationEnvelope.Record("c1", "Josh", 1L),
+				new ReservationEnvelope.Record(null, "Mark", 2L)));
+
+		List<ReservationEnvelope.Record> records = ReservationEnvelope.decode(payload);
+
+		assertEquals(2, records.size());
+		assertEquals("c1", records.get(0).getCorrelationId());
+		assertEquals("Josh", records.get(0).getReservationName());
+		assertNull(records.get(1).getCorrelationId());
+		assertEquals(2L, records.get(1).getCreatedAt());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void countBeyondPayloadIsRejectedBeforeAllocating() {
+		// 0x7FFFFFFF records announced in a 8 byte payload
+		ReservationEnvelope.decode(new byte[] { (byte) 0xFF, 'R', ReservationEnvelope.VERSION, (byte) 0xFF, (byte) 0xFF,
+				(byte) 0xFF, (byte) 0xFF, 0x07 });
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void otherVersionIsRejected() {
+		ReservationEnvelope.decode(new byte[] { (byte) 0xFF, 'R', ReservationEnvelope.VERSION + 1, 0 });
+	}
+}
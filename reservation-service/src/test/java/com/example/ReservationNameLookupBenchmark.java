@@ -0,0 +1,85 @@
+package com.example;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Lookup latency of the by-name query against table size, before and after the
+ * reservation_name_key index. Runs against an in-memory H2 with the reservation table as
+ * hibernate creates it; not part of the test suite, run the main method from the IDE or with
+ * {@code mvn test-compile exec:java -Dexec.mainClass=com.example.ReservationNameLookupBenchmark -Dexec.classpathScope=test}.
+ */
+public class ReservationNameLookupBenchmark {
+
+	// what spring data derives for findByReservationNameIgnoreCase
+	private static final String BEFORE = "select id, reservation_name from reservation where upper(reservation_name) = upper(?)";
+
+	private static final String AFTER = "select id, reservation_name from reservation where reservation_name_key = lower(?)";
+
+	private static final int LOOKUPS = 2000;
+
+	public static void main(String[] args) throws SQLException {
+		int[] sizes = { 1_000, 10_000, 100_000, 500_000 };
+		System.out.printf("%10s %18s %18s%n", "rows", "before (us/op)", "after (us/op)");
+		for (int size : sizes) {
+			try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:lookup" + size)) {
+				createTable(connection, size);
+				double before = measure(connection, BEFORE, size);
+				double after = measure(connection, AFTER, size);
+				System.out.printf("%10d %18.1f %18.1f%n", size, before, after);
+			}
+		}
+	}
+
+	private static void createTable(Connection connection, int size) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table reservation (id bigint primary key, reservation_name varchar(255), reservation_name_key varchar(255))");
+			statement.execute("create index idx_reservation_name_key on reservation(reservation_name_key)");
+		}
+		try (PreparedStatement insert = connection.prepareStatement("insert into reservation values (?, ?, ?)")) {
+			for (int i = 0; i < size; i++) {
+				String name = "Reservation" + i;
+				insert.setLong(1, i);
+				insert.setString(2, name);
+				insert.setString(3, name.toLowerCase(Locale.ROOT));
+				insert.addBatch();
+				if (i % 1000 == 999) {
+					insert.executeBatch();
+				}
+			}
+			insert.executeBatch();
+		}
+	}
+
+	/**
+	 * @return mean microseconds per lookup after warm up
+	 */
+	private static double measure(Connection connection, String sql, int size) throws SQLException {
+		Random random = new Random(42);
+		try (PreparedStatement query = connection.prepareStatement(sql)) {
+			for (int i = 0; i < LOOKUPS / 10; i++) {
+				lookup(query, "RESERVATION" + random.nextInt(size));
+			}
+			long start = System.nanoTime();
+			for (int i = 0; i < LOOKUPS; i++) {
+				lookup(query, "RESERVATION" + random.nextInt(size));
+			}
+			return (System.nanoTime() - start) / 1000.0 / LOOKUPS;
+		}
+	}
+
+	private static void lookup(PreparedStatement query, String name) throws SQLException {
+		query.setString(1, name);
+		try (ResultSet rs = query.executeQuery()) {
+			if (!rs.next()) {
+				throw new IllegalStateException("missing " + name);
+			}
+		}
+	}
+}
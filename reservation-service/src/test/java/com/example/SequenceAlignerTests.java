@@ -0,0 +1,65 @@
+package com.example;
+
+import static org.junit.Assert.assertEquals;
+
+import org.hibernate.dialect.H2Dialect;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+public class SequenceAlignerTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	@Before
+	public void createSchema() {
+		database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+		jdbcTemplate = new JdbcTemplate(database);
+		for (String[] sequence : SequenceAligner.SEQUENCES) {
+			jdbcTemplate.execute("create table " + sequence[0] + " (id bigint primary key)");
+			jdbcTemplate.execute("create sequence " + sequence[1] + " start with 1 increment by 50");
+		}
+	}
+
+	@After
+	public void dropDatabase() {
+		database.shutdown();
+	}
+
+	@Test
+	public void newSequenceStartsAboveExistingRows() {
+		jdbcTemplate.update("insert into reservation (id) values (1234)");
+
+		new SequenceAligner(jdbcTemplate, new H2Dialect()).afterPropertiesSet();
+
+		assertEquals(1235L, (long) jdbcTemplate.queryForObject("select next value for reservation_seq", Long.class));
+	}
+
+	@Test
+	public void bookmarkSequencesStartAboveExistingRows() {
+		jdbcTemplate.update("insert into account (id) values (8)");
+		jdbcTemplate.update("insert into bookmark (id) values (24)");
+
+		new SequenceAligner(jdbcTemplate, new H2Dialect()).afterPropertiesSet();
+
+		assertEquals(9L, (long) jdbcTemplate.queryForObject("select next value for account_seq", Long.class));
+		assertEquals(25L, (long) jdbcTemplate.queryForObject("select next value for bookmark_seq", Long.class));
+	}
+
+	@Test
+	public void sequenceAheadOfTheRowsIsLeftAlone() {
+		jdbcTemplate.queryForObject("select next value for reservation_seq", Long.class);
+		jdbcTemplate.update("insert into reservation (id) values (20)");
+
+		new SequenceAligner(jdbcTemplate, new H2Dialect()).afterPropertiesSet();
+
+		// 51 went to the aligner's check
+		assertEquals(101L, (long) jdbcTemplate.queryForObject("select next value for reservation_seq", Long.class));
+	}
+}
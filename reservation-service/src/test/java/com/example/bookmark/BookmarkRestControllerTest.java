@@ -1,5 +1,7 @@
 package com.example.bookmark;
 
+import org.hibernate.jpa.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -26,8 +28,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import javax.persistence.EntityManagerFactory;
+
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -65,6 +70,9 @@ public class BookmarkRestControllerTest {
     @Autowired
     private AccountRepository accountRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     void setConverters(HttpMessageConverter<?>[] converters) {
 
@@ -130,6 +138,49 @@ public class BookmarkRestControllerTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    public void readBookmarksIsOneStatement() throws Exception {
+        // first request caches the account id
+        mockMvc.perform(get("/" + userName + "/bookmarks")).andExpect(status().isOk());
+
+        Statistics statistics = this.resetStatistics();
+        mockMvc.perform(get("/" + userName + "/bookmarks"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+        Assert.assertThat(statistics.getPrepareStatementCount(), lessThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void readSingleBookmarkIsOneStatement() throws Exception {
+        mockMvc.perform(get("/" + userName + "/bookmarks")).andExpect(status().isOk());
+
+        Statistics statistics = this.resetStatistics();
+        mockMvc.perform(get("/" + userName + "/bookmarks/" + this.bookmarkList.get(0).getId()))
+                .andExpect(status().isOk());
+        Assert.assertThat(statistics.getPrepareStatementCount(), lessThanOrEqualTo(1L));
+    }
+
+    @Test
+    public void createBookmarkDoesNotLoadAccount() throws Exception {
+        String bookmarkJson = json(new Bookmark(this.account, "http://spring.io", "Spring"));
+        this.mockMvc.perform(post("/" + userName + "/bookmarks").contentType(contentType).content(bookmarkJson))
+                .andExpect(status().isCreated());
+
+        Statistics statistics = this.resetStatistics();
+        this.mockMvc.perform(post("/" + userName + "/bookmarks").contentType(contentType).content(bookmarkJson))
+                .andExpect(status().isCreated());
+        Assert.assertEquals(0, statistics.getQueryExecutionCount());
+        Assert.assertEquals(0, statistics.getEntityLoadCount());
+        Assert.assertEquals(1, statistics.getEntityInsertCount());
+    }
+
+    private Statistics resetStatistics() {
+        Statistics statistics = ((HibernateEntityManagerFactory) this.entityManagerFactory).getSessionFactory().getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
     protected String json(Object o) throws IOException {
         MockHttpOutputMessage mockHttpOutputMessage = new MockHttpOutputMessage();
         this.mappingJackson2HttpMessageConverter.write(